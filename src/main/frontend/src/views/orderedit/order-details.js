@@ -219,19 +219,6 @@ class OrderDetails extends ScrollShadowMixin(LitElement) {
               .hidden="${this.review}"
             >
               <label slot="label">History</label>
-              ${this.item &&
-              map(this.item.history, (event) => html`
-                  <div class="history-line">
-                    <span class="bold">${event.createdBy.firstName}</span>
-                    <span class="secondary">${event.formattedTimestamp}</span>
-                    <order-status-badge
-                      .status="${event.newState}"
-                      small=""
-                    ></order-status-badge>
-                  </div>
-                  <div class="comment">${event.message}</div>
-                `
-              )}
             </vaadin-form-item>
 
             <vaadin-form-item id="comment" .hidden="${this.review}">
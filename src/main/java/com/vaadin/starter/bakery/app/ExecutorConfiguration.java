@@ -0,0 +1,46 @@
+package com.vaadin.starter.bakery.app;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configures the bounded executor used for loading dashboard data in the
+ * background. When the queue is full, tasks run in the submitting thread, which
+ * throttles the callers instead of failing.
+ * <p>
+ * Prefetching grid pages has an executor of its own, which rejects tasks when
+ * its queue is full, as a prefetch can always be skipped.
+ */
+@Configuration
+public class ExecutorConfiguration {
+
+	public static final String DASHBOARD_EXECUTOR = "dashboardExecutor";
+	public static final String PREFETCH_EXECUTOR = "prefetchExecutor";
+
+	@Bean(DASHBOARD_EXECUTOR)
+	public ThreadPoolTaskExecutor dashboardExecutor(@Value("${bakery.dashboard.threads:8}") int threads,
+			@Value("${bakery.dashboard.queue-capacity:1000}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("dashboard-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return executor;
+	}
+
+	@Bean(PREFETCH_EXECUTOR)
+	public ThreadPoolTaskExecutor prefetchExecutor(@Value("${bakery.grid.prefetch-threads:4}") int threads,
+			@Value("${bakery.grid.prefetch-queue-capacity:100}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("prefetch-");
+		return executor;
+	}
+}
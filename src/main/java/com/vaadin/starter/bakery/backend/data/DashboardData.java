@@ -1,56 +1,319 @@
 package com.vaadin.starter.bakery.backend.data;
 
-import java.util.LinkedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import com.vaadin.starter.bakery.backend.data.entity.Product;
+/**
+ * Immutable dashboard data. The series are stored as primitive arrays with a
+ * bitmap telling which entries have a value, and products are referenced by id
+ * and name only, so a single instance can be shared by all sessions.
+ * <p>
+ * {@link #toBytes()} and {@link #fromBytes(byte[])} convert the data to and
+ * from a compact binary snapshot, which is also the serialized form, e.g. when
+ * the data shown in a dashboard is stored with the session.
+ */
+public final class DashboardData implements Serializable {
 
-public class DashboardData {
+	public static final int SALES_YEARS = 3;
 
-	private DeliveryStats deliveryStats;
-	private List<Number> deliveriesThisMonth;
-	private List<Number> deliveriesThisYear;
-	private Number[][] salesPerMonth;
-	private LinkedHashMap<Product, Integer> productDeliveries;
+	private static final int MONTHS = 12;
+	private static final byte FORMAT_VERSION = 1;
+
+	private final int[] deliveryStats;
+	private final long[] deliveriesThisMonth;
+	private final long deliveriesThisMonthPresent;
+	private final long[] deliveriesThisYear;
+	private final long deliveriesThisYearPresent;
+	private final long[] salesPerMonth;
+	private final long salesPerMonthPresent;
+	private final long[] productIds;
+	private final String[] productNames;
+	private final long[] productDeliveries;
+
+	private DashboardData(int[] deliveryStats, long[] deliveriesThisMonth, long deliveriesThisMonthPresent,
+			long[] deliveriesThisYear, long deliveriesThisYearPresent, long[] salesPerMonth,
+			long salesPerMonthPresent, long[] productIds, String[] productNames, long[] productDeliveries) {
+		this.deliveryStats = deliveryStats;
+		this.deliveriesThisMonth = deliveriesThisMonth;
+		this.deliveriesThisMonthPresent = deliveriesThisMonthPresent;
+		this.deliveriesThisYear = deliveriesThisYear;
+		this.deliveriesThisYearPresent = deliveriesThisYearPresent;
+		this.salesPerMonth = salesPerMonth;
+		this.salesPerMonthPresent = salesPerMonthPresent;
+		this.productIds = productIds;
+		this.productNames = productNames;
+		this.productDeliveries = productDeliveries;
+	}
 
 	public DeliveryStats getDeliveryStats() {
-		return deliveryStats;
+		return new DeliveryStats(deliveryStats[0], deliveryStats[1], deliveryStats[2], deliveryStats[3],
+				deliveryStats[4]);
 	}
 
-	public void setDeliveryStats(DeliveryStats deliveryStats) {
-		this.deliveryStats = deliveryStats;
+	/**
+	 * Returns the deliveries per day of the month, with <code>null</code> for
+	 * the days without deliveries.
+	 */
+	public Number[] getDeliveriesThisMonth() {
+		return toNumbers(deliveriesThisMonth, deliveriesThisMonthPresent, 0, deliveriesThisMonth.length);
 	}
 
-	public List<Number> getDeliveriesThisMonth() {
-		return deliveriesThisMonth;
+	/**
+	 * Returns the deliveries per month of the year, with <code>null</code> for
+	 * the months without deliveries.
+	 */
+	public Number[] getDeliveriesThisYear() {
+		return toNumbers(deliveriesThisYear, deliveriesThisYearPresent, 0, MONTHS);
 	}
 
-	public void setDeliveriesThisMonth(List<Number> deliveriesThisMonth) {
-		this.deliveriesThisMonth = deliveriesThisMonth;
+	/**
+	 * Returns the sales per month of the year <code>yearsAgo</code> years
+	 * before the requested one.
+	 */
+	public Number[] getSalesPerMonth(int yearsAgo) {
+		return toNumbers(salesPerMonth, salesPerMonthPresent, yearsAgo * MONTHS, MONTHS);
 	}
 
-	public List<Number> getDeliveriesThisYear() {
-		return deliveriesThisYear;
+	public int getProductCount() {
+		return productIds.length;
 	}
 
-	public void setDeliveriesThisYear(List<Number> deliveriesThisYear) {
-		this.deliveriesThisYear = deliveriesThisYear;
+	public long getProductId(int index) {
+		return productIds[index];
 	}
 
-	public void setSalesPerMonth(Number[][] salesPerMonth) {
-		this.salesPerMonth = salesPerMonth;
+	public String getProductName(int index) {
+		return productNames[index];
 	}
 
-	public Number[] getSalesPerMonth(int i) {
-		return salesPerMonth[i];
+	public long getProductDeliveries(int index) {
+		return productDeliveries[index];
 	}
 
-	public LinkedHashMap<Product, Integer> getProductDeliveries() {
-		return productDeliveries;
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT_VERSION);
+			for (int stat : deliveryStats) {
+				out.writeInt(stat);
+			}
+			out.writeByte(deliveriesThisMonth.length);
+			writeSeries(out, deliveriesThisMonth, deliveriesThisMonthPresent);
+			writeSeries(out, deliveriesThisYear, deliveriesThisYearPresent);
+			writeSeries(out, salesPerMonth, salesPerMonthPresent);
+			out.writeShort(productIds.length);
+			for (int i = 0; i < productIds.length; i++) {
+				out.writeLong(productIds[i]);
+				out.writeUTF(productNames[i]);
+				out.writeLong(productDeliveries[i]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
 	}
 
-	public void setProductDeliveries(LinkedHashMap<Product, Integer> productDeliveries) {
-		this.productDeliveries = productDeliveries;
+	public static DashboardData fromBytes(byte[] snapshot) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+			byte version = in.readByte();
+			if (version != FORMAT_VERSION) {
+				throw new IllegalArgumentException("Unsupported dashboard data format " + version);
+			}
+			int[] deliveryStats = new int[5];
+			for (int i = 0; i < deliveryStats.length; i++) {
+				deliveryStats[i] = in.readInt();
+			}
+			long[] deliveriesThisMonth = new long[in.readUnsignedByte()];
+			long deliveriesThisMonthPresent = readSeries(in, deliveriesThisMonth);
+			long[] deliveriesThisYear = new long[MONTHS];
+			long deliveriesThisYearPresent = readSeries(in, deliveriesThisYear);
+			long[] salesPerMonth = new long[SALES_YEARS * MONTHS];
+			long salesPerMonthPresent = readSeries(in, salesPerMonth);
+			int products = in.readUnsignedShort();
+			long[] productIds = new long[products];
+			String[] productNames = new String[products];
+			long[] productDeliveries = new long[products];
+			for (int i = 0; i < products; i++) {
+				productIds[i] = in.readLong();
+				productNames[i] = in.readUTF();
+				productDeliveries[i] = in.readLong();
+			}
+			return new DashboardData(deliveryStats, deliveriesThisMonth, deliveriesThisMonthPresent,
+					deliveriesThisYear, deliveriesThisYearPresent, salesPerMonth, salesPerMonthPresent, productIds,
+					productNames, productDeliveries);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid dashboard data snapshot", e);
+		}
+	}
+
+	private Object writeReplace() {
+		return new SerializedForm(toBytes());
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("Deserialized through SerializedForm");
+	}
+
+	private static final class SerializedForm implements Serializable {
+		private final byte[] snapshot;
+
+		SerializedForm(byte[] snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		private Object readResolve() {
+			return fromBytes(snapshot);
+		}
 	}
 
+	// Only the entries that have a value are written
+	private static void writeSeries(DataOutputStream out, long[] values, long present) throws IOException {
+		out.writeLong(present);
+		for (int i = 0; i < values.length; i++) {
+			if (isPresent(present, i)) {
+				out.writeLong(values[i]);
+			}
+		}
+	}
+
+	private static long readSeries(DataInputStream in, long[] values) throws IOException {
+		long present = in.readLong();
+		for (int i = 0; i < values.length; i++) {
+			if (isPresent(present, i)) {
+				values[i] = in.readLong();
+			}
+		}
+		return present;
+	}
+
+	private static Number[] toNumbers(long[] values, long present, int from, int length) {
+		Number[] numbers = new Number[length];
+		for (int i = 0; i < length; i++) {
+			if (isPresent(present, from + i)) {
+				numbers[i] = values[from + i];
+			}
+		}
+		return numbers;
+	}
+
+	private static boolean isPresent(long present, int index) {
+		return (present & (1L << index)) != 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		DashboardData that = (DashboardData) o;
+		return deliveriesThisMonthPresent == that.deliveriesThisMonthPresent
+				&& deliveriesThisYearPresent == that.deliveriesThisYearPresent
+				&& salesPerMonthPresent == that.salesPerMonthPresent
+				&& Arrays.equals(deliveryStats, that.deliveryStats)
+				&& Arrays.equals(deliveriesThisMonth, that.deliveriesThisMonth)
+				&& Arrays.equals(deliveriesThisYear, that.deliveriesThisYear)
+				&& Arrays.equals(salesPerMonth, that.salesPerMonth) && Arrays.equals(productIds, that.productIds)
+				&& Arrays.equals(productNames, that.productNames)
+				&& Arrays.equals(productDeliveries, that.productDeliveries);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Arrays.hashCode(deliveryStats);
+		result = 31 * result + Arrays.hashCode(deliveriesThisMonth);
+		result = 31 * result + Arrays.hashCode(deliveriesThisYear);
+		result = 31 * result + Arrays.hashCode(salesPerMonth);
+		result = 31 * result + Arrays.hashCode(productIds);
+		result = 31 * result + Arrays.hashCode(productNames);
+		result = 31 * result + Arrays.hashCode(productDeliveries);
+		return result;
+	}
+
+	/**
+	 * Collects the values of a {@link DashboardData}. Entries that are never set
+	 * are reported as missing.
+	 */
+	public static final class Builder {
+
+		private final int[] deliveryStats = new int[5];
+		private final long[] deliveriesThisMonth;
+		private long deliveriesThisMonthPresent;
+		private final long[] deliveriesThisYear = new long[MONTHS];
+		private long deliveriesThisYearPresent;
+		private final long[] salesPerMonth = new long[SALES_YEARS * MONTHS];
+		private long salesPerMonthPresent;
+		private final List<Long> productIds = new ArrayList<>();
+		private final List<String> productNames = new ArrayList<>();
+		private final List<Long> productDeliveries = new ArrayList<>();
+
+		public Builder(int daysInMonth) {
+			deliveriesThisMonth = new long[daysInMonth];
+		}
+
+		public Builder setDeliveryStats(DeliveryStats stats) {
+			deliveryStats[0] = stats.getDeliveredToday();
+			deliveryStats[1] = stats.getDueToday();
+			deliveryStats[2] = stats.getDueTomorrow();
+			deliveryStats[3] = stats.getNotAvailableToday();
+			deliveryStats[4] = stats.getNewOrders();
+			return this;
+		}
+
+		/**
+		 * Sets the deliveries of the given day of the month, starting from 1.
+		 */
+		public Builder setDeliveriesThisMonth(int day, long deliveries) {
+			deliveriesThisMonth[day - 1] = deliveries;
+			deliveriesThisMonthPresent |= 1L << (day - 1);
+			return this;
+		}
+
+		/**
+		 * Sets the deliveries of the given month, starting from 1.
+		 */
+		public Builder setDeliveriesThisYear(int month, long deliveries) {
+			deliveriesThisYear[month - 1] = deliveries;
+			deliveriesThisYearPresent |= 1L << (month - 1);
+			return this;
+		}
+
+		/**
+		 * Sets the sales of the given month, starting from 1,
+		 * <code>yearsAgo</code> years before the requested one.
+		 */
+		public Builder setSalesPerMonth(int yearsAgo, int month, long sales) {
+			int index = yearsAgo * MONTHS + month - 1;
+			salesPerMonth[index] = sales;
+			salesPerMonthPresent |= 1L << index;
+			return this;
+		}
+
+		public Builder addProductDeliveries(long productId, String productName, long deliveries) {
+			productIds.add(productId);
+			productNames.add(productName);
+			productDeliveries.add(deliveries);
+			return this;
+		}
+
+		public DashboardData build() {
+			return new DashboardData(deliveryStats.clone(), deliveriesThisMonth.clone(), deliveriesThisMonthPresent,
+					deliveriesThisYear.clone(), deliveriesThisYearPresent, salesPerMonth.clone(),
+					salesPerMonthPresent, productIds.stream().mapToLong(Long::longValue).toArray(),
+					productNames.toArray(new String[0]),
+					productDeliveries.stream().mapToLong(Long::longValue).toArray());
+		}
+	}
 }
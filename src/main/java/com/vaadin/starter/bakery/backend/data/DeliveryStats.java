@@ -1,5 +1,7 @@
 package com.vaadin.starter.bakery.backend.data;
 
+import java.util.Objects;
+
 public class DeliveryStats {
 
 	private int deliveredToday;
@@ -8,6 +10,18 @@ public class DeliveryStats {
 	private int notAvailableToday;
 	private int newOrders;
 
+	public DeliveryStats() {
+	}
+
+	public DeliveryStats(long deliveredToday, long dueToday, long dueTomorrow, long notAvailableToday,
+			long newOrders) {
+		this.deliveredToday = (int) deliveredToday;
+		this.dueToday = (int) dueToday;
+		this.dueTomorrow = (int) dueTomorrow;
+		this.notAvailableToday = (int) notAvailableToday;
+		this.newOrders = (int) newOrders;
+	}
+
 	public int getDeliveredToday() {
 		return deliveredToday;
 	}
@@ -48,4 +62,21 @@ public class DeliveryStats {
 		this.newOrders = newOrders;
 	}
 
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		DeliveryStats that = (DeliveryStats) o;
+		return deliveredToday == that.deliveredToday && dueToday == that.dueToday && dueTomorrow == that.dueTomorrow
+				&& notAvailableToday == that.notAvailableToday && newOrders == that.newOrders;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(deliveredToday, dueToday, dueTomorrow, notAvailableToday, newOrders);
+	}
 }
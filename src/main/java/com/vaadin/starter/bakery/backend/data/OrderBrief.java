@@ -0,0 +1,136 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+
+/**
+ * Read-only copy of the order fields shown in the order lists.
+ */
+public final class OrderBrief implements Serializable {
+
+	public static final class Item implements Serializable {
+		private final int quantity;
+		private final String productName;
+
+		public Item(int quantity, String productName) {
+			this.quantity = quantity;
+			this.productName = productName;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public String getProductName() {
+			return productName;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Item that = (Item) o;
+			return quantity == that.quantity && Objects.equals(productName, that.productName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(quantity, productName);
+		}
+	}
+
+	private final Long id;
+	private final int version;
+	private final LocalDate dueDate;
+	private final LocalTime dueTime;
+	private final OrderState state;
+	private final String customerFullName;
+	private final String pickupLocationName;
+	private final List<Item> items;
+
+	public OrderBrief(Long id, int version, LocalDate dueDate, LocalTime dueTime, OrderState state, String customerFullName,
+			String pickupLocationName, List<Item> items) {
+		this.id = id;
+		this.version = version;
+		this.dueDate = dueDate;
+		this.dueTime = dueTime;
+		this.state = state;
+		this.customerFullName = customerFullName;
+		this.pickupLocationName = pickupLocationName;
+		this.items = Collections.unmodifiableList(items);
+	}
+
+	public static OrderBrief of(OrderSummary order) {
+		return new OrderBrief(order.getId(), order.getVersion(), order.getDueDate(), order.getDueTime(), order.getState(),
+				order.getCustomer().getFullName(), order.getPickupLocation().getName(),
+				order.getItems().stream().map(item -> new Item(item.getQuantity(), item.getProduct().getName()))
+						.collect(Collectors.toList()));
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the version of the order entity, which does not change when only
+	 * the customer or the items of the order are updated.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public LocalDate getDueDate() {
+		return dueDate;
+	}
+
+	public LocalTime getDueTime() {
+		return dueTime;
+	}
+
+	public OrderState getState() {
+		return state;
+	}
+
+	public String getCustomerFullName() {
+		return customerFullName;
+	}
+
+	public String getPickupLocationName() {
+		return pickupLocationName;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		OrderBrief that = (OrderBrief) o;
+		return version == that.version && Objects.equals(id, that.id) && Objects.equals(dueDate, that.dueDate)
+				&& Objects.equals(dueTime, that.dueTime) && state == that.state
+				&& Objects.equals(customerFullName, that.customerFullName)
+				&& Objects.equals(pickupLocationName, that.pickupLocationName) && items.equals(that.items);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, version);
+	}
+}
@@ -0,0 +1,93 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An order received from another sales channel, such as the online shop or
+ * the phone lines. Products and pickup locations are referred to by id.
+ */
+public final class OrderImport {
+
+	public static final class Item {
+		private final Long productId;
+		private final int quantity;
+		private final String comment;
+
+		public Item(Long productId, int quantity, String comment) {
+			this.productId = productId;
+			this.quantity = quantity;
+			this.comment = comment;
+		}
+
+		public Long getProductId() {
+			return productId;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+
+		public String getComment() {
+			return comment;
+		}
+	}
+
+	private final LocalDate dueDate;
+	private final LocalTime dueTime;
+	private final Long pickupLocationId;
+	private final OrderState state;
+	private final String customerFullName;
+	private final String customerPhoneNumber;
+	private final String customerDetails;
+	private final List<Item> items;
+
+	public OrderImport(LocalDate dueDate, LocalTime dueTime, Long pickupLocationId, OrderState state,
+			String customerFullName, String customerPhoneNumber, String customerDetails, List<Item> items) {
+		this.dueDate = dueDate;
+		this.dueTime = dueTime;
+		this.pickupLocationId = pickupLocationId;
+		this.state = state;
+		this.customerFullName = customerFullName;
+		this.customerPhoneNumber = customerPhoneNumber;
+		this.customerDetails = customerDetails;
+		this.items = items == null ? Collections.emptyList() : Collections.unmodifiableList(items);
+	}
+
+	public LocalDate getDueDate() {
+		return dueDate;
+	}
+
+	public LocalTime getDueTime() {
+		return dueTime;
+	}
+
+	public Long getPickupLocationId() {
+		return pickupLocationId;
+	}
+
+	/**
+	 * The state of the order, or <code>null</code> for a new order.
+	 */
+	public OrderState getState() {
+		return state;
+	}
+
+	public String getCustomerFullName() {
+		return customerFullName;
+	}
+
+	public String getCustomerPhoneNumber() {
+		return customerPhoneNumber;
+	}
+
+	public String getCustomerDetails() {
+		return customerDetails;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+}
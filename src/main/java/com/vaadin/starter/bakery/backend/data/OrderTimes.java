@@ -0,0 +1,76 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueTime;
+
+/**
+ * The times shown next to the dashboard counters, read at a given moment: when
+ * the next ready order is due, when the first order of tomorrow is due and
+ * when the last order was placed.
+ */
+public final class OrderTimes implements Serializable {
+
+	private final LocalDate nextReadyDueDate;
+	private final LocalTime nextReadyDueTime;
+	private final LocalTime firstDueTimeTomorrow;
+	private final LocalDateTime lastPlacementTime;
+
+	public OrderTimes(Optional<OrderDueTime> nextReadyOrder, Optional<LocalTime> firstDueTimeTomorrow,
+			Optional<LocalDateTime> lastPlacementTime) {
+		this.nextReadyDueDate = nextReadyOrder.map(OrderDueTime::getDueDate).orElse(null);
+		this.nextReadyDueTime = nextReadyOrder.map(OrderDueTime::getDueTime).orElse(null);
+		this.firstDueTimeTomorrow = firstDueTimeTomorrow.orElse(null);
+		this.lastPlacementTime = lastPlacementTime.orElse(null);
+	}
+
+	public Optional<OrderDueTime> getNextReadyOrder() {
+		if (nextReadyDueDate == null) {
+			return Optional.empty();
+		}
+		return Optional.of(new OrderDueTime() {
+			@Override
+			public LocalDate getDueDate() {
+				return nextReadyDueDate;
+			}
+
+			@Override
+			public LocalTime getDueTime() {
+				return nextReadyDueTime;
+			}
+		});
+	}
+
+	public Optional<LocalTime> getFirstDueTimeTomorrow() {
+		return Optional.ofNullable(firstDueTimeTomorrow);
+	}
+
+	public Optional<LocalDateTime> getLastPlacementTime() {
+		return Optional.ofNullable(lastPlacementTime);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		OrderTimes that = (OrderTimes) o;
+		return Objects.equals(nextReadyDueDate, that.nextReadyDueDate)
+				&& Objects.equals(nextReadyDueTime, that.nextReadyDueTime)
+				&& Objects.equals(firstDueTimeTomorrow, that.firstDueTimeTomorrow)
+				&& Objects.equals(lastPlacementTime, that.lastPlacementTime);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(nextReadyDueDate, nextReadyDueTime, firstDueTimeTomorrow, lastPlacementTime);
+	}
+}
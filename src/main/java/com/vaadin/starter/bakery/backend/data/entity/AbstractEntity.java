@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 import jakarta.persistence.Version;
@@ -11,8 +12,10 @@ import jakarta.persistence.Version;
 @MappedSuperclass
 public abstract class AbstractEntity implements Serializable {
 
+	// Each entity has its own sequence, from which ids are allocated 50 at a
+	// time, so ids are known before inserting and the inserts can be batched
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE)
 	private Long id;
 
 	@Version
@@ -26,6 +29,10 @@ public abstract class AbstractEntity implements Serializable {
 		return version;
 	}
 
+	protected void setVersion(int version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		return Objects.hash(id, version);
@@ -2,6 +2,7 @@ package com.vaadin.starter.bakery.backend.data.entity;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.ManyToOne;
 import jakarta.validation.constraints.NotBlank;
@@ -25,6 +26,14 @@ public class HistoryItem extends AbstractEntity {
 	@NotNull
 	private User createdBy;
 
+	// The order and the position in its history, mapped by Order.history.
+	// Only written by HistoryItemRepository.appendToOrder.
+	@Column(name = "history_id", insertable = false, updatable = false)
+	private Long orderId;
+
+	@Column(name = "history_order", insertable = false, updatable = false)
+	private Integer historyOrder;
+
 	HistoryItem() {
 		// Empty constructor is needed by Spring Data / JPA
 	}
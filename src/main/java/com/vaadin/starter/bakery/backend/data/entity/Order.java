@@ -15,10 +15,12 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.NamedAttributeNode;
 import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.NamedEntityGraphs;
+import jakarta.persistence.NamedSubgraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.OrderColumn;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -27,6 +29,19 @@ import org.hibernate.annotations.BatchSize;
 
 import com.vaadin.starter.bakery.backend.data.OrderState;
 
+/**
+ * An order of the bakery. The items and the history of an order are loaded
+ * lazily, so the queries of each use case state what they load with one of
+ * the entity graphs: {@link #ENTITY_GRAPTH_BRIEF} for the order with its
+ * customer and pickup location, and {@link #ENTITY_GRAPTH_FULL} for the order
+ * editor and details, which show the items as well. The order lists and the
+ * analytics do not load entities at all.
+ * <p>
+ * The history of a stored order is never loaded with it, as it grows with
+ * every change and comment: it is read in pages through the
+ * {@code HistoryItemRepository}, and the history items added to a stored order
+ * are kept apart until they are appended by the service saving the order.
+ */
 @Entity(name = "OrderInfo") // "Order" is a reserved word
 @NamedEntityGraphs({@NamedEntityGraph(name = Order.ENTITY_GRAPTH_BRIEF, attributeNodes = {
 		@NamedAttributeNode("customer"),
@@ -34,10 +49,9 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
 }),@NamedEntityGraph(name = Order.ENTITY_GRAPTH_FULL, attributeNodes = {
 		@NamedAttributeNode("customer"),
 		@NamedAttributeNode("pickupLocation"),
-		@NamedAttributeNode("items"),
-		@NamedAttributeNode("history")
-})})
-@Table(indexes = @Index(columnList = "dueDate"))
+		@NamedAttributeNode(value = "items", subgraph = "items")
+}, subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))})
+@Table(indexes = { @Index(columnList = "dueDate, dueTime, id"), @Index(columnList = "state, dueDate") })
 public class Order extends AbstractEntity implements OrderSummary {
 
 	public static final String ENTITY_GRAPTH_BRIEF = "Order.brief";
@@ -57,7 +71,7 @@ public class Order extends AbstractEntity implements OrderSummary {
 	@OneToOne(cascade = CascadeType.ALL)
 	private Customer customer;
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
 	@OrderColumn
 	@JoinColumn
 	@BatchSize(size = 1000)
@@ -68,11 +82,15 @@ public class Order extends AbstractEntity implements OrderSummary {
 	private OrderState state;
 
 
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	// Not merged, so that saving an order does not read its history
+	@OneToMany(cascade = { CascadeType.PERSIST, CascadeType.REMOVE }, fetch = FetchType.LAZY)
 	@OrderColumn
 	@JoinColumn
 	private List<HistoryItem> history;
 
+	@Transient
+	private List<HistoryItem> addedHistory = new ArrayList<>();
+
 	public Order(User createdBy) {
 		this.state = OrderState.NEW;
 		setCustomer(new Customer());
@@ -87,12 +105,41 @@ public class Order extends AbstractEntity implements OrderSummary {
 	public void addHistoryItem(User createdBy, String comment) {
 		HistoryItem item = new HistoryItem(createdBy, comment);
 		item.setNewState(state);
+		if (getId() != null) {
+			addedHistory.add(item);
+			return;
+		}
 		if (history == null) {
 			history = new LinkedList<>();
 		}
 		history.add(item);
 	}
 
+	/**
+	 * Takes the version of the stored order after a change written without
+	 * merging this order, such as a comment added to its history.
+	 */
+	@Override
+	public void setVersion(int version) {
+		super.setVersion(version);
+	}
+
+	/**
+	 * Returns the history items added since this stored order was read and
+	 * not yet stored.
+	 */
+	public List<HistoryItem> getAddedHistory() {
+		return new ArrayList<>(addedHistory);
+	}
+
+	/**
+	 * Forgets the given added history items once they have been stored. Items
+	 * added after they were read are kept.
+	 */
+	public void forgetAddedHistory(List<HistoryItem> stored) {
+		addedHistory.removeIf(item -> stored.stream().anyMatch(storedItem -> storedItem == item));
+	}
+
 	@Override
 	public LocalDate getDueDate() {
 		return dueDate;
@@ -0,0 +1,13 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Projection of an order that only carries when it is due.
+ */
+public interface OrderDueTime {
+	LocalDate getDueDate();
+
+	LocalTime getDueTime();
+}
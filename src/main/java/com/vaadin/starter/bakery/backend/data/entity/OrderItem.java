@@ -1,5 +1,7 @@
 package com.vaadin.starter.bakery.backend.data.entity;
 
+import java.util.Objects;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.ManyToOne;
 import jakarta.validation.constraints.Min;
@@ -20,11 +22,18 @@ public class OrderItem extends AbstractEntity {
 	@Size(max = 255)
 	private String comment;
 
+	// The unit price when the product was chosen, real price * 100. Later
+	// price changes of the product do not change the price of the item.
+	private Integer price;
+
 	public Product getProduct() {
 		return product;
 	}
 
 	public void setProduct(Product product) {
+		if (product == null || this.product == null || !Objects.equals(product.getId(), this.product.getId())) {
+			price = product == null ? null : product.getPrice();
+		}
 		this.product = product;
 	}
 
@@ -44,7 +53,11 @@ public class OrderItem extends AbstractEntity {
 		this.comment = comment;
 	}
 
+	public Integer getPrice() {
+		return price;
+	}
+
 	public int getTotalPrice() {
-		return quantity == null || product == null ? 0 : quantity * product.getPrice();
+		return quantity == null || price == null ? 0 : quantity * price;
 	}
 }
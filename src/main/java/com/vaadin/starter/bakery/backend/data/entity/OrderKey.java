@@ -0,0 +1,8 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+/**
+ * Projection of an order to the fields it is sorted by in the order lists.
+ */
+public interface OrderKey extends OrderDueTime {
+	Long getId();
+}
@@ -0,0 +1,98 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+/**
+ * Pre-aggregated order figures for one (due date, state, pickup location,
+ * product) combination. Rows without a product count whole orders, rows with a
+ * product hold the quantity and sales of that product. There is at most one
+ * row for each combination.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "dueDate", "state", "pickupLocation_id",
+		"productKey" }))
+public class OrderRollup extends AbstractEntity {
+
+	@NotNull
+	private LocalDate dueDate;
+
+	@NotNull
+	private OrderState state;
+
+	@NotNull
+	@ManyToOne
+	private PickupLocation pickupLocation;
+
+	@ManyToOne
+	private Product product;
+
+	// The id of the product, or 0 in the rows counting whole orders. Unlike
+	// the nullable product, it keeps two order count rows from having the
+	// same key.
+	private long productKey;
+
+	private long orderCount;
+
+	private long quantity;
+
+	// Real sales * 100, see Product.price
+	private long sales;
+
+	OrderRollup() {
+		// Empty constructor is needed by Spring Data / JPA
+	}
+
+	public OrderRollup(LocalDate dueDate, OrderState state, PickupLocation pickupLocation, Product product) {
+		this.dueDate = dueDate;
+		this.state = state;
+		this.pickupLocation = pickupLocation;
+		this.product = product;
+		this.productKey = product == null ? 0 : product.getId();
+	}
+
+	public void add(long orderCount, long quantity, long sales) {
+		this.orderCount += orderCount;
+		this.quantity += quantity;
+		this.sales += sales;
+	}
+
+	public boolean isEmpty() {
+		return orderCount == 0 && quantity == 0 && sales == 0;
+	}
+
+	public LocalDate getDueDate() {
+		return dueDate;
+	}
+
+	public OrderState getState() {
+		return state;
+	}
+
+	public PickupLocation getPickupLocation() {
+		return pickupLocation;
+	}
+
+	public Product getProduct() {
+		return product;
+	}
+
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	public long getQuantity() {
+		return quantity;
+	}
+
+	public long getSales() {
+		return sales;
+	}
+}
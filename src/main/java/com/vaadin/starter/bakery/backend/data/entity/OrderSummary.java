@@ -9,6 +9,8 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
 public interface OrderSummary {
 	Long getId();
 
+	int getVersion();
+
 	OrderState getState();
 
 	Customer getCustomer();
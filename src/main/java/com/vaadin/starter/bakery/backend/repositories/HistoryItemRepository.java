@@ -1,8 +1,29 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 
 public interface HistoryItemRepository extends JpaRepository<HistoryItem, Long> {
+
+	// Newest first, so the first page holds the latest changes and comments
+	@Query("SELECT h FROM OrderInfo o JOIN o.history h JOIN FETCH h.createdBy WHERE o.id=?1 "
+			+ "ORDER BY index(h) DESC LIMIT ?3 OFFSET ?2")
+	List<HistoryItem> findByOrderNewestFirst(Long orderId, int offset, int limit);
+
+	@Query("SELECT size(o.history) FROM OrderInfo o WHERE o.id=?1")
+	int countByOrder(Long orderId);
+
+	// The order and the position of a history item are mapped by the order, so
+	// they are written directly for appending a history item without loading
+	// the order. The position is the number of items in the history, which is
+	// only right while the caller holds the lock of the order row, see
+	// OrderRepository.incrementVersion.
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE HistoryItem h SET h.orderId = ?2, h.historyOrder = ?3 WHERE h.id = ?1")
+	int appendToOrder(Long historyItemId, Long orderId, int position);
 }
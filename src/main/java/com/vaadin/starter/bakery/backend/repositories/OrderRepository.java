@@ -1,31 +1,54 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.vaadin.starter.bakery.backend.data.OrderState;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueTime;
+import com.vaadin.starter.bakery.backend.data.entity.OrderKey;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByDueDateAfter(LocalDate filterDate, Pageable pageable);
+	// Scrolling only reads the sort keys, the orders of a window are loaded
+	// separately so that the database can walk the sort index
+	Window<OrderKey> findKeysByDueDateAfter(LocalDate filterDate, ScrollPosition position, Limit limit, Sort sort);
 
-	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByCustomerFullNameContainingIgnoreCase(String searchQuery, Pageable pageable);
+	Window<OrderKey> findKeysBy(ScrollPosition position, Limit limit, Sort sort);
 
-	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	Page<Order> findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate, Pageable pageable);
+	Optional<OrderKey> findFirstKeyByDueDateAfterOrderByDueDateAscDueTimeAscIdAsc(LocalDate filterDate);
+
+	Optional<OrderKey> findFirstKeyByOrderByDueDateAscDueTimeAscIdAsc();
+
+	@Query("SELECT o.id, o.version, o.dueDate, o.dueTime, o.state, c.fullName, l.name FROM OrderInfo o "
+			+ "JOIN o.customer c JOIN o.pickupLocation l WHERE o.id IN ?1")
+	List<Object[]> findBriefsByIdIn(Collection<Long> ids);
+
+	@Query("SELECT o.id, i.quantity, p.name FROM OrderInfo o JOIN o.items i JOIN i.product p WHERE o.id IN ?1 "
+			+ "ORDER BY o.id, index(i)")
+	List<Object[]> findBriefItemsByOrderIdIn(Collection<Long> ids);
 
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
@@ -35,35 +58,48 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	Page<Order> findAll(Pageable pageable);
 
-	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
-	List<OrderSummary> findByDueDateGreaterThanEqual(LocalDate dueDate);
-
+	// Loads what the order editor and details show, in a single query
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_FULL, type = EntityGraphType.LOAD)
 	Optional<Order> findById(Long id);
 
-	long countByDueDateAfter(LocalDate dueDate);
+	@Query("SELECT o.dueDate AS dueDate, o.dueTime AS dueTime FROM OrderInfo o WHERE o.state=?1 AND (o.dueDate>?2 OR (o.dueDate=?2 AND o.dueTime>?3)) ORDER BY o.dueDate, o.dueTime")
+	List<OrderDueTime> findNextDue(OrderState state, LocalDate date, LocalTime time, Limit limit);
 
-	long countByCustomerFullNameContainingIgnoreCase(String searchQuery);
+	Optional<OrderDueTime> findFirstByDueDateOrderByDueTimeAsc(LocalDate dueDate);
 
-	long countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate);
+	// The first history item is written when the order is placed
+	@Query("SELECT h.timestamp FROM OrderInfo o JOIN o.history h WHERE index(h)=0 AND o.dueDate>=?1 ORDER BY o.id DESC")
+	List<LocalDateTime> findLastPlacementTime(LocalDate dueDate, Limit limit);
 
-	long countByDueDate(LocalDate dueDate);
+	@Query("SELECT o.id, o.dueDate, o.dueTime, o.state, c.fullName, c.phoneNumber, l.name FROM OrderInfo o "
+			+ "JOIN o.customer c JOIN o.pickupLocation l")
+	List<Object[]> findSearchFields();
 
-	long countByDueDateAndStateIn(LocalDate dueDate, Collection<OrderState> state);
+	@Query("SELECT o.id, p.name FROM OrderInfo o JOIN o.items i JOIN i.product p")
+	List<Object[]> findSearchProductNames();
 
-	long countByState(OrderState state);
+	// Also locks the order until the end of the transaction
+	@Modifying
+	@Query("UPDATE OrderInfo o SET o.version = o.version + 1 WHERE o.id = ?1 AND o.version = ?2")
+	int incrementVersion(Long id, int version);
 
-	@Query("SELECT month(dueDate) as month, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 group by month(dueDate)")
-	List<Object[]> countPerMonth(OrderState orderState, int year);
+	// Locks the order until the end of the transaction
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT o.id FROM OrderInfo o WHERE o.id = ?1")
+	Long lockById(Long id);
 
-	@Query("SELECT year(o.dueDate) as y, month(o.dueDate) as m, sum(oi.quantity*p.price) as deliveries FROM OrderInfo o JOIN o.items oi JOIN oi.product p where o.state=?1 and year(o.dueDate)<=?2 AND year(o.dueDate)>=(?2-3) group by year(o.dueDate), month(o.dueDate) order by y desc, month(o.dueDate)")
-	List<Object[]> sumPerMonthLastThreeYears(OrderState orderState, int year);
+	// Reads the stored state even when the order is modified in the current
+	// persistence context, so that it can be subtracted from the rollups.
+	// Sales are read at the prices stored in the items, as they were added.
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+	@Query("SELECT o.dueDate, o.state, o.pickupLocation.id, oi.product.id, oi.quantity, oi.quantity*oi.price FROM OrderInfo o LEFT JOIN o.items oi WHERE o.id=?1")
+	List<Object[]> findRollupContribution(Long orderId);
 
-	@Query("SELECT day(dueDate) as day, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 and month(dueDate)=?3 group by day(dueDate)")
-	List<Object[]> countPerDay(OrderState orderState, int year, int month);
+	@Query("SELECT o.dueDate, o.state, o.pickupLocation.id, count(*) FROM OrderInfo o GROUP BY o.dueDate, o.state, o.pickupLocation.id")
+	List<Object[]> countPerRollupKey();
 
-	@Query("SELECT sum(oi.quantity), p FROM OrderInfo o JOIN o.items oi JOIN oi.product p WHERE o.state=?1 AND year(o.dueDate)=?2 AND month(o.dueDate)=?3 GROUP BY p.id ORDER BY p.id")
-	List<Object[]> countPerProduct(OrderState orderState, int year, int month);
+	@Query("SELECT o.dueDate, o.state, o.pickupLocation.id, oi.product.id, sum(oi.quantity), sum(oi.quantity*oi.price) FROM OrderInfo o JOIN o.items oi GROUP BY o.dueDate, o.state, o.pickupLocation.id, oi.product.id")
+	List<Object[]> sumPerRollupKey();
 
 }
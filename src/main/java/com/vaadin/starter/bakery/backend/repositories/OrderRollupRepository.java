@@ -0,0 +1,35 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.OrderRollup;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+
+public interface OrderRollupRepository extends JpaRepository<OrderRollup, Long> {
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT r FROM OrderRollup r WHERE r.dueDate=?1 AND r.state=?2 AND r.pickupLocation=?3 AND r.productKey=?4")
+	Optional<OrderRollup> findRow(LocalDate dueDate, OrderState state, PickupLocation pickupLocation,
+			long productKey);
+
+	boolean existsByDueDateAndStateAndPickupLocationAndProductKey(LocalDate dueDate, OrderState state,
+			PickupLocation pickupLocation, long productKey);
+
+	@Query("SELECT r.dueDate, r.state, r.pickupLocation.id, r.productKey FROM OrderRollup r WHERE r.dueDate IN ?1")
+	List<Object[]> findKeysByDueDateIn(Collection<LocalDate> dueDates);
+
+	@Modifying
+	@Query("DELETE FROM OrderRollup")
+	void deleteAllRows();
+}
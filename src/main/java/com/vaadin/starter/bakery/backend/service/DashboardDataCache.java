@@ -0,0 +1,123 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.vaadin.starter.bakery.backend.data.DashboardData;
+
+/**
+ * Caches {@link DashboardData} for all users. Entries are keyed by the
+ * requested month, the current date and the order data version; concurrent
+ * requests for a missing entry share a single load.
+ */
+public class DashboardDataCache {
+
+	public static final class Key {
+		private final int month;
+		private final int year;
+		private final LocalDate today;
+		private final long version;
+
+		public Key(int month, int year, LocalDate today, long version) {
+			this.month = month;
+			this.year = year;
+			this.today = today;
+			this.version = version;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Key that = (Key) o;
+			return month == that.month && year == that.year && version == that.version
+					&& Objects.equals(today, that.today);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(month, year, today, version);
+		}
+
+		private boolean isOlderThan(Key other) {
+			return version < other.version || today.isBefore(other.today);
+		}
+	}
+
+	private final Map<Key, CompletableFuture<DashboardData>> entries = new ConcurrentHashMap<>();
+
+	public DashboardData get(Key key, Supplier<DashboardData> loader) {
+		CompletableFuture<DashboardData> entry = getAsync(key, () -> CompletableFuture.completedFuture(loader.get()));
+		try {
+			return entry.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the entry for the given key, starting the given asynchronous load
+	 * if there is none yet.
+	 */
+	public CompletableFuture<DashboardData> getAsync(Key key, Supplier<CompletableFuture<DashboardData>> loader) {
+		CompletableFuture<DashboardData> entry = entries.get(key);
+		if (entry == null) {
+			CompletableFuture<DashboardData> created = new CompletableFuture<>();
+			entry = entries.putIfAbsent(key, created);
+			if (entry == null) {
+				entry = created;
+				try {
+					loader.get().whenComplete((data, e) -> {
+						if (e == null) {
+							created.complete(data);
+						} else {
+							created.completeExceptionally(e);
+						}
+					});
+				} catch (Throwable e) {
+					created.completeExceptionally(e);
+				}
+				track(key, created);
+			}
+		}
+		return entry.copy();
+	}
+
+	public boolean contains(Key key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * Stores data that has been computed ahead of time. Unlike a load, this does
+	 * not evict the entries of earlier days, as they are still in use until the
+	 * date changes.
+	 */
+	public void put(Key key, DashboardData data) {
+		entries.put(key, CompletableFuture.completedFuture(data));
+	}
+
+	private void track(Key key, CompletableFuture<DashboardData> entry) {
+		entry.whenComplete((data, e) -> {
+			if (e == null) {
+				entries.keySet().removeIf(k -> k.isOlderThan(key));
+			} else {
+				entries.remove(key, entry);
+			}
+		});
+	}
+}
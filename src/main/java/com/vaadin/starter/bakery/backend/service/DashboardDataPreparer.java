@@ -0,0 +1,36 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+
+/**
+ * Prepares the dashboard data of the next day during the last minutes before
+ * midnight, so that the first visit after the date or the month changes is
+ * served from the cache. Once prepared, the data is prepared again by
+ * {@link OrderService} whenever orders change before midnight.
+ */
+@Component
+public class DashboardDataPreparer implements HasLogger {
+
+	private final OrderService orderService;
+
+	@Autowired
+	public DashboardDataPreparer(OrderService orderService) {
+		this.orderService = orderService;
+	}
+
+	@Scheduled(cron = "${bakery.dashboard.prepare-cron:0 55-59 23 * * *}")
+	public void prepareNextDay() {
+		LocalDate tomorrow = LocalDate.now().plusDays(1);
+		try {
+			orderService.prepareDashboardData(tomorrow);
+		} catch (RuntimeException e) {
+			getLogger().warn("Failed to prepare the dashboard data for " + tomorrow, e);
+		}
+	}
+}
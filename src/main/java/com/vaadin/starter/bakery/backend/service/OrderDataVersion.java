@@ -0,0 +1,38 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Application wide counter of order data changes, used to invalidate anything
+ * derived from orders. Inside a transaction the counter only moves once the
+ * transaction has committed, so that a value read before the commit is never
+ * paired with data that does not contain the change yet. Listeners are run
+ * after each change.
+ */
+@Component
+public class OrderDataVersion {
+
+	private final AtomicLong version = new AtomicLong();
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	public long get() {
+		return version.get();
+	}
+
+	public void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	public void increment() {
+		TransactionUtils.afterCommit(this::incrementAndNotify);
+	}
+
+	private void incrementAndNotify() {
+		version.incrementAndGet();
+		listeners.forEach(Runnable::run);
+	}
+}
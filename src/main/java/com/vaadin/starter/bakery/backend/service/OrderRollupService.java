@@ -0,0 +1,293 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.OrderRollup;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+import com.vaadin.starter.bakery.backend.repositories.OrderRollupRepository;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+
+/**
+ * Maintains the daily {@link OrderRollup} rows the dashboard reads from. The
+ * rollups are updated in the same transaction as the order they reflect: the
+ * stored contribution of an order is subtracted and the new one is added
+ * before it is saved. Sales are counted at the prices stored in the order
+ * items, so that exactly what was added is subtracted later.
+ * <p>
+ * The changes of a transaction are netted per rollup row. Missing rows are
+ * first created empty, each in a short transaction of its own that gives way
+ * when another transaction has created the same row. Then the rows are locked
+ * in the order of their keys, so that concurrent saves changing the same rows
+ * wait for each other instead of deadlocking. Emptied rows are kept, so a row
+ * only disappears when the rollups are rebuilt. Creating rows takes a second
+ * database connection while the transaction of the save is open.
+ * <p>
+ * The same changes are applied to the {@link SalesCube} once the transaction
+ * has committed.
+ */
+@Service
+public class OrderRollupService implements HasLogger {
+
+	// The order in which rollup rows are locked
+	private static final Comparator<Contribution> KEY_ORDER = Comparator
+			.comparing((Contribution contribution) -> contribution.dueDate)
+			.thenComparing(contribution -> contribution.state)
+			.thenComparing(contribution -> contribution.pickupLocation.getId())
+			.thenComparingLong(contribution -> contribution.productKey());
+
+	private final OrderRollupRepository orderRollupRepository;
+	private final OrderRepository orderRepository;
+	private final ProductRepository productRepository;
+	private final PickupLocationRepository pickupLocationRepository;
+	private final OrderDataVersion orderDataVersion;
+	private final SalesCube salesCube;
+	private final TransactionTemplate newRowTransaction;
+
+	@Autowired
+	public OrderRollupService(OrderRollupRepository orderRollupRepository, OrderRepository orderRepository,
+			ProductRepository productRepository, PickupLocationRepository pickupLocationRepository,
+			OrderDataVersion orderDataVersion, SalesCube salesCube, PlatformTransactionManager transactionManager) {
+		this.orderRollupRepository = orderRollupRepository;
+		this.orderRepository = orderRepository;
+		this.productRepository = productRepository;
+		this.pickupLocationRepository = pickupLocationRepository;
+		this.orderDataVersion = orderDataVersion;
+		this.salesCube = salesCube;
+		this.newRowTransaction = new TransactionTemplate(transactionManager);
+		this.newRowTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Replaces the stored contribution of the order, if it has been stored, by
+	 * the contribution of the given order. Called before the order is saved.
+	 */
+	@Transactional
+	public void replace(Order order) {
+		Map<List<Object>, Contribution> contributions = new HashMap<>();
+		if (order.getId() != null) {
+			subtractStored(contributions, order.getId());
+		}
+		add(contributions, order);
+		apply(contributions);
+	}
+
+	/**
+	 * Adds several orders, reading and writing each rollup row they change
+	 * once.
+	 */
+	@Transactional
+	public void addAll(Collection<Order> orders) {
+		Map<List<Object>, Contribution> contributions = new HashMap<>();
+		for (Order order : orders) {
+			add(contributions, order);
+		}
+		apply(contributions);
+	}
+
+	@Transactional
+	public void remove(Long orderId) {
+		Map<List<Object>, Contribution> contributions = new HashMap<>();
+		subtractStored(contributions, orderId);
+		apply(contributions);
+	}
+
+	private static void add(Map<List<Object>, Contribution> contributions, Order order) {
+		contribution(contributions, order.getDueDate(), order.getState(), order.getPickupLocation(), null).add(1, 0,
+				0);
+		for (OrderItem item : order.getItems()) {
+			contribution(contributions, order.getDueDate(), order.getState(), order.getPickupLocation(),
+					item.getProduct()).add(0, item.getQuantity(), item.getTotalPrice());
+		}
+	}
+
+	private void subtractStored(Map<List<Object>, Contribution> contributions, Long orderId) {
+		List<Object[]> rows = orderRepository.findRollupContribution(orderId);
+		if (rows.isEmpty()) {
+			return;
+		}
+		// dueDate, state, pickup location id, product id, quantity, sales; the
+		// item columns are null for an order without items
+		Object[] first = rows.get(0);
+		PickupLocation pickupLocation = location((Long) first[2]);
+		contribution(contributions, (LocalDate) first[0], (OrderState) first[1], pickupLocation, null).add(-1, 0, 0);
+		for (Object[] row : rows) {
+			if (row[3] != null) {
+				contribution(contributions, (LocalDate) row[0], (OrderState) row[1], pickupLocation,
+						product((Long) row[3])).add(0, -((Number) row[4]).longValue(),
+								row[5] == null ? 0 : -((Number) row[5]).longValue());
+			}
+		}
+	}
+
+	private static Contribution contribution(Map<List<Object>, Contribution> contributions, LocalDate dueDate,
+			OrderState state, PickupLocation pickupLocation, Product product) {
+		List<Object> key = Arrays.asList(dueDate, state, pickupLocation.getId(),
+				product == null ? 0L : product.getId());
+		return contributions.computeIfAbsent(key, k -> new Contribution(dueDate, state, pickupLocation, product));
+	}
+
+	@Transactional
+	public void rebuild() {
+		orderRollupRepository.deleteAllRows();
+		List<OrderRollup> rollups = new ArrayList<>();
+		for (Object[] row : orderRepository.countPerRollupKey()) {
+			OrderRollup rollup = new OrderRollup((LocalDate) row[0], (OrderState) row[1], location((Long) row[2]),
+					null);
+			rollup.add(((Number) row[3]).longValue(), 0, 0);
+			rollups.add(orderRollupRepository.save(rollup));
+		}
+		for (Object[] row : orderRepository.sumPerRollupKey()) {
+			OrderRollup rollup = new OrderRollup((LocalDate) row[0], (OrderState) row[1], location((Long) row[2]),
+					product((Long) row[3]));
+			rollup.add(0, ((Number) row[4]).longValue(), ((Number) row[5]).longValue());
+			rollups.add(orderRollupRepository.save(rollup));
+		}
+		TransactionUtils.afterCommit(() -> salesCube.load(rollups));
+		orderDataVersion.increment();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional
+	public void rebuildIfMissing() {
+		if (orderRollupRepository.count() == 0 && orderRepository.count() != 0) {
+			getLogger().info("Building order rollups");
+			rebuild();
+		} else {
+			salesCube.load(orderRollupRepository.findAll());
+		}
+	}
+
+	private void apply(Map<List<Object>, Contribution> contributions) {
+		List<Contribution> changes = contributions.values().stream().filter(change -> !change.isEmpty())
+				.sorted(KEY_ORDER).collect(Collectors.toList());
+		if (changes.isEmpty()) {
+			return;
+		}
+		createMissingRows(changes);
+		for (Contribution change : changes) {
+			apply(change);
+		}
+	}
+
+	// Done before any row is locked, so that the transactions creating rows
+	// never wait for the locks of this one
+	private void createMissingRows(List<Contribution> changes) {
+		Set<List<Object>> existingKeys = new HashSet<>();
+		for (Object[] row : orderRollupRepository.findKeysByDueDateIn(
+				changes.stream().map(change -> change.dueDate).collect(Collectors.toSet()))) {
+			existingKeys.add(Arrays.asList(row));
+		}
+		for (Contribution change : changes) {
+			if (!existingKeys.contains(change.key())) {
+				createRow(change);
+			}
+		}
+	}
+
+	private void createRow(Contribution change) {
+		try {
+			newRowTransaction.executeWithoutResult(status -> orderRollupRepository
+					.saveAndFlush(new OrderRollup(change.dueDate, change.state, change.pickupLocation, change.product)));
+		} catch (DataIntegrityViolationException e) {
+			// Fine if another transaction has created the row in the meantime,
+			// but not if the row cannot be created at all, such as for a
+			// deleted product
+			if (!orderRollupRepository.existsByDueDateAndStateAndPickupLocationAndProductKey(change.dueDate,
+					change.state, change.pickupLocation, change.productKey())) {
+				throw e;
+			}
+		}
+	}
+
+	private void apply(Contribution change) {
+		Optional<OrderRollup> row = lockRow(change);
+		while (!row.isPresent()) {
+			// Deleted by a rebuild in the meantime
+			createRow(change);
+			row = lockRow(change);
+		}
+		OrderRollup rollup = row.get();
+		rollup.add(change.orderCount, change.quantity, change.sales);
+		orderRollupRepository.save(rollup);
+		Long productId = change.product == null ? null : change.product.getId();
+		TransactionUtils.afterCommit(() -> salesCube.add(change.dueDate, change.state, change.pickupLocation.getId(),
+				productId, change.orderCount, change.quantity, change.sales));
+	}
+
+	private Optional<OrderRollup> lockRow(Contribution change) {
+		return orderRollupRepository.findRow(change.dueDate, change.state, change.pickupLocation,
+				change.productKey());
+	}
+
+	private static final class Contribution {
+		private final LocalDate dueDate;
+		private final OrderState state;
+		private final PickupLocation pickupLocation;
+		private final Product product;
+		private long orderCount;
+		private long quantity;
+		private long sales;
+
+		Contribution(LocalDate dueDate, OrderState state, PickupLocation pickupLocation, Product product) {
+			this.dueDate = dueDate;
+			this.state = state;
+			this.pickupLocation = pickupLocation;
+			this.product = product;
+		}
+
+		void add(long orderCount, long quantity, long sales) {
+			this.orderCount += orderCount;
+			this.quantity += quantity;
+			this.sales += sales;
+		}
+
+		long productKey() {
+			return product == null ? 0 : product.getId();
+		}
+
+		List<Object> key() {
+			return Arrays.asList(dueDate, state, pickupLocation.getId(), productKey());
+		}
+
+		boolean isEmpty() {
+			return orderCount == 0 && quantity == 0 && sales == 0;
+		}
+	}
+
+	private PickupLocation location(Long id) {
+		return pickupLocationRepository.getReferenceById(id);
+	}
+
+	private Product product(Long id) {
+		return productRepository.getReferenceById(id);
+	}
+}
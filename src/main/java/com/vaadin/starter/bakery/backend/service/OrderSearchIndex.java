@@ -0,0 +1,525 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory trigram index of the searchable fields of the orders: customer
+ * name and phone number, product names, pickup location and state. It is used
+ * to search orders by a part of any of these without joining and scanning the
+ * order tables. Every order is listed under the three character sequences of
+ * its fields, so the candidates of a search are the orders of its rarest
+ * sequence, which are then checked against the whole search text. Shorter
+ * search texts check the orders in due order until a page of them has
+ * matched, as most orders match them.
+ * <p>
+ * Matches are returned in the order of due date, due time and id. Inside a
+ * transaction, changes are only applied once the transaction has committed.
+ */
+@Component
+public class OrderSearchIndex {
+
+	/**
+	 * The searchable fields of an order and the due date and time it is sorted
+	 * by.
+	 */
+	public static final class Document {
+		private final long orderId;
+		private final String text;
+		private final int epochDay;
+		private final int secondOfDay;
+
+		public Document(long orderId, Collection<String> fields, LocalDate dueDate, LocalTime dueTime) {
+			this.orderId = orderId;
+			// Fields are kept apart so that a search text never matches across
+			// two of them
+			this.text = fields.stream().filter(Objects::nonNull).map(field -> field.toLowerCase(Locale.ROOT))
+					.collect(Collectors.joining(FIELD_SEPARATOR));
+			this.epochDay = (int) dueDate.toEpochDay();
+			this.secondOfDay = dueTime.toSecondOfDay();
+		}
+	}
+
+	/**
+	 * The orders found by a search, in due order.
+	 */
+	public static final class Matches {
+		private final long[] orderIds;
+		private final int[] epochDay;
+		private final int[] secondOfDay;
+
+		private Matches(int[] slots, long[] orderIds, int[] epochDay, int[] secondOfDay) {
+			this.orderIds = new long[slots.length];
+			this.epochDay = new int[slots.length];
+			this.secondOfDay = new int[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				this.orderIds[i] = orderIds[slots[i]];
+				this.epochDay[i] = epochDay[slots[i]];
+				this.secondOfDay[i] = secondOfDay[slots[i]];
+			}
+		}
+
+		public int size() {
+			return orderIds.length;
+		}
+
+		/**
+		 * Returns the ids of at most <code>limit</code> orders following the
+		 * given offset or forward keyset position.
+		 */
+		public List<Long> find(ScrollPosition position, int limit) {
+			int from;
+			if (position.isInitial()) {
+				from = 0;
+			} else if (position instanceof OffsetScrollPosition) {
+				from = (int) Math.min(size(), ((OffsetScrollPosition) position).getOffset() + 1);
+			} else {
+				DueKey key = DueKey.of((KeysetScrollPosition) position);
+				from = firstAfter(size(), i -> key.isBefore(epochDay[i], secondOfDay[i], orderIds[i]));
+			}
+			List<Long> ids = new ArrayList<>();
+			for (int i = from; i < size() && ids.size() < limit; i++) {
+				ids.add(orderIds[i]);
+			}
+			return ids;
+		}
+	}
+
+	// The due date, due time and id of a keyset position
+	private static final class DueKey {
+		private final int epochDay;
+		private final int secondOfDay;
+		private final long orderId;
+
+		private DueKey(int epochDay, int secondOfDay, long orderId) {
+			this.epochDay = epochDay;
+			this.secondOfDay = secondOfDay;
+			this.orderId = orderId;
+		}
+
+		static DueKey of(KeysetScrollPosition position) {
+			Map<String, Object> keys = position.getKeys();
+			return new DueKey((int) ((LocalDate) keys.get("dueDate")).toEpochDay(),
+					((LocalTime) keys.get("dueTime")).toSecondOfDay(), ((Number) keys.get("id")).longValue());
+		}
+
+		boolean isBefore(int otherEpochDay, int otherSecondOfDay, long otherOrderId) {
+			int result = Integer.compare(epochDay, otherEpochDay);
+			if (result == 0) {
+				result = Integer.compare(secondOfDay, otherSecondOfDay);
+			}
+			return result != 0 ? result < 0 : orderId < otherOrderId;
+		}
+	}
+
+	private static final int NGRAM = 3;
+	private static final String FIELD_SEPARATOR = "\n";
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Object loadLock = new Object();
+	private final Object dueOrderLock = new Object();
+
+	// The changes made while the documents of a load are read, null when not
+	// loading
+	private List<Runnable> changesDuringLoad;
+
+	private final Map<Long, Integer> slots = new HashMap<>();
+	private final Map<Long, Postings> postings = new HashMap<>();
+	private int size;
+	private int removed;
+	private long[] orderIds = new long[16];
+	private String[] texts = new String[16];
+	private int[] epochDay = new int[16];
+	private int[] secondOfDay = new int[16];
+	private volatile int[] dueOrder;
+
+	/**
+	 * Adds an order to the index, replacing the previous entry of the order.
+	 */
+	public void put(Document document) {
+		TransactionUtils.afterCommit(() -> change(() -> {
+			removeSlot(document.orderId);
+			addSlot(document.orderId, document.text, document.epochDay, document.secondOfDay);
+		}));
+	}
+
+	/**
+	 * Replaces the content of the index with the documents read by the given
+	 * supplier, at once, so that searches never see it partially loaded. The
+	 * orders put or removed while the documents are read are applied again on
+	 * top of them, as the documents may have been read before the changes.
+	 */
+	public void load(Supplier<Collection<Document>> documents) {
+		synchronized (loadLock) {
+			setChangesDuringLoad(new ArrayList<>());
+			Collection<Document> loaded;
+			try {
+				loaded = documents.get();
+			} catch (RuntimeException | Error e) {
+				setChangesDuringLoad(null);
+				throw e;
+			}
+			lock.writeLock().lock();
+			try {
+				List<Runnable> changes = changesDuringLoad;
+				changesDuringLoad = null;
+				clear();
+				for (Document document : loaded) {
+					addSlot(document.orderId, document.text, document.epochDay, document.secondOfDay);
+				}
+				changes.forEach(Runnable::run);
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	public void remove(long orderId) {
+		TransactionUtils.afterCommit(() -> change(() -> removeSlot(orderId)));
+	}
+
+	private void setChangesDuringLoad(List<Runnable> changes) {
+		lock.writeLock().lock();
+		try {
+			changesDuringLoad = changes;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void change(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+			dueOrder = null;
+			if (changesDuringLoad != null) {
+				changesDuringLoad.add(change);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			slots.clear();
+			postings.clear();
+			size = 0;
+			removed = 0;
+			dueOrder = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Tells whether the given order has a field that contains the given text,
+	 * ignoring case.
+	 */
+	public boolean matches(String text, long orderId) {
+		lock.readLock().lock();
+		try {
+			Integer slot = slots.get(orderId);
+			return slot != null && texts[slot].contains(text.toLowerCase(Locale.ROOT));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Tells whether the given search text is long enough to be looked up in
+	 * the index. Shorter texts are checked against every order.
+	 */
+	public boolean isIndexed(String text) {
+		return text.length() >= NGRAM;
+	}
+
+	/**
+	 * Counts the orders with a field that contains the given text, ignoring
+	 * case, and that are due after the given date unless it is
+	 * <code>null</code>.
+	 */
+	public int count(String text, LocalDate dueAfter) {
+		lock.readLock().lock();
+		try {
+			return matches(text.toLowerCase(Locale.ROOT), dueAfter, null).length;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the orders with a field that contains the given text, ignoring
+	 * case, and that are due after the given date unless it is
+	 * <code>null</code>, in due order. The result is a copy that later
+	 * changes of the index do not affect.
+	 */
+	public Matches search(String text, LocalDate dueAfter) {
+		lock.readLock().lock();
+		try {
+			int[] matches = matches(text.toLowerCase(Locale.ROOT), dueAfter, null);
+			sortByDue(matches, new int[matches.length], 0, matches.length);
+			return new Matches(matches, orderIds, epochDay, secondOfDay);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the ids of at most <code>limit</code> matching orders following
+	 * the given offset or forward keyset position. Texts too short for the
+	 * index are checked against the orders in due order until enough have
+	 * matched.
+	 */
+	public List<Long> find(String text, LocalDate dueAfter, ScrollPosition position, int limit) {
+		if (isIndexed(text)) {
+			return search(text, dueAfter).find(position, limit);
+		}
+		String lowerCaseText = text.toLowerCase(Locale.ROOT);
+		lock.readLock().lock();
+		try {
+			int[] order = dueOrder();
+			int from = firstDueAfter(order, dueAfter);
+			long skip = 0;
+			if (position instanceof OffsetScrollPosition && !position.isInitial()) {
+				skip = ((OffsetScrollPosition) position).getOffset() + 1;
+			} else if (position instanceof KeysetScrollPosition && !position.isInitial()) {
+				DueKey key = DueKey.of((KeysetScrollPosition) position);
+				from = Math.max(from, firstAfter(order.length,
+						i -> key.isBefore(epochDay[order[i]], secondOfDay[order[i]], orderIds[order[i]])));
+			}
+			List<Long> ids = new ArrayList<>();
+			for (int i = from; i < order.length && ids.size() < limit; i++) {
+				if (texts[order[i]].contains(lowerCaseText) && skip-- <= 0) {
+					ids.add(orderIds[order[i]]);
+				}
+			}
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the id of the first matching order that is due after the first
+	 * date and before the second one, either of which can be
+	 * <code>null</code>.
+	 */
+	public Optional<Long> findFirst(String text, LocalDate dueAfter, LocalDate dueBefore) {
+		String lowerCaseText = text.toLowerCase(Locale.ROOT);
+		lock.readLock().lock();
+		try {
+			if (!isIndexed(text)) {
+				int maxEpochDay = dueBefore == null ? Integer.MAX_VALUE : (int) dueBefore.toEpochDay() - 1;
+				int[] order = dueOrder();
+				for (int i = firstDueAfter(order, dueAfter); i < order.length
+						&& epochDay[order[i]] <= maxEpochDay; i++) {
+					if (texts[order[i]].contains(lowerCaseText)) {
+						return Optional.of(orderIds[order[i]]);
+					}
+				}
+				return Optional.empty();
+			}
+			int[] matches = matches(lowerCaseText, dueAfter, dueBefore);
+			if (matches.length == 0) {
+				return Optional.empty();
+			}
+			int first = matches[0];
+			for (int slot : matches) {
+				if (compare(slot, first) < 0) {
+					first = slot;
+				}
+			}
+			return Optional.of(orderIds[first]);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// The matches are in no particular order
+	private int[] matches(String text, LocalDate dueAfter, LocalDate dueBefore) {
+		int minEpochDay = dueAfter == null ? Integer.MIN_VALUE : (int) dueAfter.toEpochDay() + 1;
+		int maxEpochDay = dueBefore == null ? Integer.MAX_VALUE : (int) dueBefore.toEpochDay() - 1;
+		Postings candidates = null;
+		for (int i = 0; i + NGRAM <= text.length(); i++) {
+			Postings ngramPostings = postings.get(ngram(text, i));
+			if (ngramPostings == null) {
+				return new int[0];
+			}
+			if (candidates == null || ngramPostings.size < candidates.size) {
+				candidates = ngramPostings;
+			}
+		}
+		int count = candidates == null ? size : candidates.size;
+		int[] matches = new int[count];
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			int slot = candidates == null ? i : candidates.slots[i];
+			if (texts[slot] != null && epochDay[slot] >= minEpochDay && epochDay[slot] <= maxEpochDay
+					&& texts[slot].contains(text)) {
+				matches[found++] = slot;
+			}
+		}
+		return Arrays.copyOf(matches, found);
+	}
+
+	// All the orders in due order, sorted again on the first search after a
+	// change. Only sorted under the read lock, changes clear it under the
+	// write lock.
+	private int[] dueOrder() {
+		int[] order = dueOrder;
+		if (order == null) {
+			synchronized (dueOrderLock) {
+				order = dueOrder;
+				if (order == null) {
+					order = new int[slots.size()];
+					int live = 0;
+					for (int slot = 0; slot < size; slot++) {
+						if (texts[slot] != null) {
+							order[live++] = slot;
+						}
+					}
+					sortByDue(order, new int[order.length], 0, order.length);
+					dueOrder = order;
+				}
+			}
+		}
+		return order;
+	}
+
+	private int firstDueAfter(int[] order, LocalDate dueAfter) {
+		if (dueAfter == null) {
+			return 0;
+		}
+		int dueAfterEpochDay = (int) dueAfter.toEpochDay();
+		return firstAfter(order.length, i -> epochDay[order[i]] > dueAfterEpochDay);
+	}
+
+	// A merge sort, as primitive arrays cannot be sorted by a comparator
+	private void sortByDue(int[] slots, int[] buffer, int from, int to) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sortByDue(slots, buffer, from, middle);
+		sortByDue(slots, buffer, middle, to);
+		System.arraycopy(slots, from, buffer, from, to - from);
+		for (int i = from, left = from, right = middle; i < to; i++) {
+			if (right == to || (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+				slots[i] = buffer[left++];
+			} else {
+				slots[i] = buffer[right++];
+			}
+		}
+	}
+
+	private int compare(int slot, int other) {
+		int result = Integer.compare(epochDay[slot], epochDay[other]);
+		if (result == 0) {
+			result = Integer.compare(secondOfDay[slot], secondOfDay[other]);
+		}
+		return result != 0 ? result : Long.compare(orderIds[slot], orderIds[other]);
+	}
+
+	// The first of the positions from 0 to size for which the condition holds,
+	// when it holds for all the positions after it
+	private static int firstAfter(int size, IntPredicate condition) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (condition.test(middle)) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	private void addSlot(long orderId, String text, int dueEpochDay, int dueSecondOfDay) {
+		if (size == orderIds.length) {
+			int capacity = size * 2;
+			orderIds = Arrays.copyOf(orderIds, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			epochDay = Arrays.copyOf(epochDay, capacity);
+			secondOfDay = Arrays.copyOf(secondOfDay, capacity);
+		}
+		int slot = size++;
+		orderIds[slot] = orderId;
+		texts[slot] = text;
+		epochDay[slot] = dueEpochDay;
+		secondOfDay[slot] = dueSecondOfDay;
+		slots.put(orderId, slot);
+		for (int i = 0; i + NGRAM <= text.length(); i++) {
+			Postings ngramPostings = postings.computeIfAbsent(ngram(text, i), ngram -> new Postings());
+			// A text listed under the same ngram twice is at the end already
+			if (ngramPostings.size == 0 || ngramPostings.slots[ngramPostings.size - 1] != slot) {
+				ngramPostings.add(slot);
+			}
+		}
+	}
+
+	// The slot is left in the postings and skipped by searches until compacted
+	private void removeSlot(long orderId) {
+		Integer slot = slots.remove(orderId);
+		if (slot != null) {
+			texts[slot] = null;
+			removed++;
+			if (removed > 1024 && removed > size / 2) {
+				compact();
+			}
+		}
+	}
+
+	private void compact() {
+		long[] liveOrderIds = Arrays.copyOf(orderIds, size);
+		String[] liveTexts = Arrays.copyOf(texts, size);
+		int[] liveEpochDay = Arrays.copyOf(epochDay, size);
+		int[] liveSecondOfDay = Arrays.copyOf(secondOfDay, size);
+		int liveSize = size;
+		clear();
+		for (int slot = 0; slot < liveSize; slot++) {
+			if (liveTexts[slot] != null) {
+				addSlot(liveOrderIds[slot], liveTexts[slot], liveEpochDay[slot], liveSecondOfDay[slot]);
+			}
+		}
+	}
+
+	private static long ngram(String text, int start) {
+		return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+	}
+
+
+	private static final class Postings {
+		private int[] slots = new int[4];
+		private int size;
+
+		void add(int slot) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size * 2);
+			}
+			slots[size++] = slot;
+		}
+	}
+}
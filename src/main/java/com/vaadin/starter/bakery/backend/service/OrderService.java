@@ -1,43 +1,118 @@
 package com.vaadin.starter.bakery.backend.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.starter.bakery.app.ExecutorConfiguration;
 import com.vaadin.starter.bakery.backend.data.DashboardData;
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
+import com.vaadin.starter.bakery.backend.data.OrderImport;
 import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.OrderTimes;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueTime;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.OrderKey;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.HistoryItemRepository;
 import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Dimension;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Measure;
 
 @Service
 public class OrderService implements CrudService<Order> {
 
 	private final OrderRepository orderRepository;
+	private final HistoryItemRepository historyItemRepository;
+	private final OrderRollupService orderRollupService;
+	private final OrderDataVersion orderDataVersion;
+	private final SalesCube salesCube;
+	private final OrderSearchIndex orderSearchIndex;
+	private final ProductRepository productRepository;
+	private final PickupLocationRepository pickupLocationRepository;
+	private final Validator validator;
+	private final TransactionTemplate transactionTemplate;
+	private final Executor dashboardExecutor;
+	private final DashboardDataCache dashboardDataCache = new DashboardDataCache();
+	private final SearchResultCache searchResultCache = new SearchResultCache(1_000_000);
+	private final List<BiConsumer<DashboardData, OrderTimes>> dashboardListeners = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean dashboardUpdatePending = new AtomicBoolean();
+	// The day whose dashboard data has been prepared ahead of time, prepared
+	// again whenever orders change until that day begins
+	private volatile LocalDate preparedDay;
+	private final AtomicBoolean preparePending = new AtomicBoolean();
 
 	@Autowired
-	public OrderService(OrderRepository orderRepository) {
+	public OrderService(OrderRepository orderRepository, HistoryItemRepository historyItemRepository,
+			OrderRollupService orderRollupService, OrderDataVersion orderDataVersion, SalesCube salesCube,
+			OrderSearchIndex orderSearchIndex, ProductRepository productRepository,
+			PickupLocationRepository pickupLocationRepository, Validator validator,
+			PlatformTransactionManager transactionManager,
+			@Qualifier(ExecutorConfiguration.DASHBOARD_EXECUTOR) Executor dashboardExecutor) {
 		super();
 		this.orderRepository = orderRepository;
+		this.historyItemRepository = historyItemRepository;
+		this.orderRollupService = orderRollupService;
+		this.orderDataVersion = orderDataVersion;
+		this.salesCube = salesCube;
+		this.orderSearchIndex = orderSearchIndex;
+		this.productRepository = productRepository;
+		this.pickupLocationRepository = pickupLocationRepository;
+		this.validator = validator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.dashboardExecutor = dashboardExecutor;
+		orderDataVersion.addListener(this::scheduleDashboardUpdate);
+		orderDataVersion.addListener(this::schedulePreparedDataUpdate);
 	}
 
 	private static final Set<OrderState> notAvailableStates = Collections.unmodifiableSet(
@@ -52,123 +127,543 @@ public class OrderService implements CrudService<Order> {
 			order = load(id);
 		}
 		orderFiller.accept(currentUser, order);
-		return orderRepository.save(order);
+		return saveWithRollups(order, orderRepository::save);
 	}
 
 	@Transactional(rollbackOn = Exception.class)
 	public Order saveOrder(Order order) {
-		return orderRepository.save(order);
+		return saveWithRollups(order, orderRepository::save);
 	}
 
+	@Override
 	@Transactional(rollbackOn = Exception.class)
-	public Order addComment(User currentUser, Order order, String comment) {
-		order.addHistoryItem(currentUser, comment);
-		return orderRepository.save(order);
+	public Order save(User currentUser, Order entity) {
+		return saveWithRollups(entity, orderRepository::saveAndFlush);
 	}
 
-	public Page<Order> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
-			Optional<LocalDate> optionalFilterDate, Pageable pageable) {
-		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
-			if (optionalFilterDate.isPresent()) {
-				return orderRepository.findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(
-						optionalFilter.get(), optionalFilterDate.get(), pageable);
-			} else {
-				return orderRepository.findByCustomerFullNameContainingIgnoreCase(optionalFilter.get(), pageable);
+	@Override
+	@Transactional(rollbackOn = Exception.class)
+	public void delete(User currentUser, Order entity) {
+		if (entity != null && entity.getId() != null) {
+			orderRollupService.remove(entity.getId());
+			orderSearchIndex.remove(entity.getId());
+		}
+		orderDataVersion.increment();
+		CrudService.super.delete(currentUser, entity);
+	}
+
+	private Order saveWithRollups(Order order, UnaryOperator<Order> saver) {
+		// The added history is only forgotten once it has been committed, so
+		// that saving the order again after a failure still stores it
+		List<HistoryItem> addedHistory = order.getAddedHistory();
+		orderRollupService.replace(order);
+		Order saved = saver.apply(order);
+		if (!addedHistory.isEmpty()) {
+			orderRepository.lockById(saved.getId());
+		}
+		for (HistoryItem historyItem : addedHistory) {
+			appendHistoryItem(saved.getId(), copyOf(historyItem));
+		}
+		TransactionUtils.afterCommit(() -> order.forgetAddedHistory(addedHistory));
+		orderSearchIndex.put(searchDocument(saved));
+		orderDataVersion.increment();
+		return saved;
+	}
+
+	/**
+	 * Receives progress and errors while orders are imported.
+	 */
+	public interface ImportListener {
+
+		/**
+		 * Called after each chunk of orders has been written, and at the end
+		 * if records have been read since.
+		 */
+		void progress(long read, long imported, long failed);
+
+		/**
+		 * Called for each order that was not imported. Records are numbered
+		 * from 1 in the order they were read.
+		 */
+		void failed(long recordNumber, OrderImport record, String error);
+	}
+
+	/**
+	 * Imports orders received from other sales channels. The records are read
+	 * one by one and validated, and the valid ones are written in a
+	 * transaction per chunk of the given size. If writing a chunk fails, its
+	 * orders are written one by one so that only the failing ones are
+	 * reported. At most one chunk of orders is held in memory, however long
+	 * the stream is; the stream is not closed.
+	 *
+	 * @return the number of orders imported
+	 */
+	public long importOrders(User currentUser, Stream<OrderImport> records, int chunkSize, ImportListener listener) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("The chunk size must be positive");
+		}
+		Map<Long, Product> products = productRepository.findAll().stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		Map<Long, PickupLocation> pickupLocations = pickupLocationRepository.findAll().stream()
+				.collect(Collectors.toMap(PickupLocation::getId, Function.identity()));
+
+		long read = 0;
+		long imported = 0;
+		long failed = 0;
+		long reported = 0;
+		List<Long> chunkNumbers = new ArrayList<>(chunkSize);
+		List<OrderImport> chunk = new ArrayList<>(chunkSize);
+		Iterator<OrderImport> iterator = records.iterator();
+		while (iterator.hasNext()) {
+			OrderImport record = iterator.next();
+			read++;
+			List<String> errors = new ArrayList<>();
+			Order order = toOrder(currentUser, record, products, pickupLocations, errors);
+			// The customer is not cascaded for validation, so it is validated apart
+			for (ConstraintViolation<?> violation : validator.validate(order)) {
+				errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
 			}
-		} else {
-			if (optionalFilterDate.isPresent()) {
-				return orderRepository.findByDueDateAfter(optionalFilterDate.get(), pageable);
+			for (ConstraintViolation<?> violation : validator.validate(order.getCustomer())) {
+				errors.add("customer." + violation.getPropertyPath() + ": " + violation.getMessage());
+			}
+			if (errors.isEmpty()) {
+				chunkNumbers.add(read);
+				chunk.add(record);
 			} else {
-				return orderRepository.findAll(pageable);
+				failed++;
+				listener.failed(read, record, String.join(", ", errors));
+			}
+			if (chunk.size() == chunkSize || (!iterator.hasNext() && !chunk.isEmpty())) {
+				int written = importChunk(currentUser, chunkNumbers, chunk, products, pickupLocations, listener);
+				imported += written;
+				failed += chunk.size() - written;
+				chunkNumbers.clear();
+				chunk.clear();
+				listener.progress(read, imported, failed);
+				reported = read;
 			}
 		}
+		// Records that failed validation after the last chunk
+		if (read != reported) {
+			listener.progress(read, imported, failed);
+		}
+		return imported;
 	}
-	
-	@Transactional
-	public List<OrderSummary> findAnyMatchingStartingToday() {
-		return orderRepository.findByDueDateGreaterThanEqual(LocalDate.now());
+
+	private int importChunk(User currentUser, List<Long> numbers, List<OrderImport> chunk,
+			Map<Long, Product> products, Map<Long, PickupLocation> pickupLocations, ImportListener listener) {
+		try {
+			writeImported(currentUser, chunk, products, pickupLocations);
+			return chunk.size();
+		} catch (RuntimeException e) {
+			if (chunk.size() == 1) {
+				listener.failed(numbers.get(0), chunk.get(0), e.getMessage());
+				return 0;
+			}
+		}
+		int written = 0;
+		for (int i = 0; i < chunk.size(); i++) {
+			written += importChunk(currentUser, numbers.subList(i, i + 1), chunk.subList(i, i + 1), products,
+					pickupLocations, listener);
+		}
+		return written;
 	}
 
-	public long countAnyMatchingAfterDueDate(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate) {
-		if (optionalFilter.isPresent() && optionalFilterDate.isPresent()) {
-			return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(optionalFilter.get(),
-					optionalFilterDate.get());
-		} else if (optionalFilter.isPresent()) {
-			return orderRepository.countByCustomerFullNameContainingIgnoreCase(optionalFilter.get());
-		} else if (optionalFilterDate.isPresent()) {
-			return orderRepository.countByDueDateAfter(optionalFilterDate.get());
-		} else {
-			return orderRepository.count();
+	// The orders are built again for every attempt, as a failed one leaves ids
+	// in the orders it did not write
+	private void writeImported(User currentUser, List<OrderImport> records, Map<Long, Product> products,
+			Map<Long, PickupLocation> pickupLocations) {
+		List<Order> orders = new ArrayList<>(records.size());
+		for (OrderImport record : records) {
+			orders.add(toOrder(currentUser, record, products, pickupLocations, new ArrayList<>()));
 		}
+		transactionTemplate.executeWithoutResult(status -> {
+			// The rollups are read before the orders are persisted, so that the
+			// orders are flushed once, in batches, when the transaction commits
+			orderRollupService.addAll(orders);
+			orderRepository.saveAll(orders);
+			for (Order order : orders) {
+				orderSearchIndex.put(searchDocument(order));
+			}
+			orderDataVersion.increment();
+		});
 	}
 
-	private DeliveryStats getDeliveryStats() {
-		DeliveryStats stats = new DeliveryStats();
-		LocalDate today = LocalDate.now();
-		stats.setDueToday((int) orderRepository.countByDueDate(today));
-		stats.setDueTomorrow((int) orderRepository.countByDueDate(today.plusDays(1)));
-		stats.setDeliveredToday((int) orderRepository.countByDueDateAndStateIn(today,
-				Collections.singleton(OrderState.DELIVERED)));
+	private static Order toOrder(User currentUser, OrderImport record, Map<Long, Product> products,
+			Map<Long, PickupLocation> pickupLocations, List<String> errors) {
+		Order order = new Order(currentUser);
+		order.setDueDate(record.getDueDate());
+		order.setDueTime(record.getDueTime());
+		if (record.getPickupLocationId() != null) {
+			order.setPickupLocation(pickupLocations.get(record.getPickupLocationId()));
+			if (order.getPickupLocation() == null) {
+				errors.add("Unknown pickup location " + record.getPickupLocationId());
+			}
+		}
+		order.getCustomer().setFullName(record.getCustomerFullName());
+		order.getCustomer().setPhoneNumber(record.getCustomerPhoneNumber());
+		order.getCustomer().setDetails(record.getCustomerDetails());
+		for (OrderImport.Item recordItem : record.getItems()) {
+			OrderItem item = new OrderItem();
+			if (recordItem.getProductId() != null) {
+				item.setProduct(products.get(recordItem.getProductId()));
+				if (item.getProduct() == null) {
+					errors.add("Unknown product " + recordItem.getProductId());
+				}
+			}
+			item.setQuantity(recordItem.getQuantity());
+			item.setComment(recordItem.getComment());
+			order.getItems().add(item);
+		}
+		if (record.getState() != null) {
+			order.changeState(currentUser, record.getState());
+		}
+		return order;
+	}
 
-		stats.setNotAvailableToday((int) orderRepository.countByDueDateAndStateIn(today, notAvailableStates));
-		stats.setNewOrders((int) orderRepository.countByState(OrderState.NEW));
+	/**
+	 * Loads the search index from the database. Called on startup, and when
+	 * the names of products have changed. Orders saved while the index is read
+	 * are kept as they were saved.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadSearchIndex() {
+		orderSearchIndex.load(this::readSearchDocuments);
+		orderDataVersion.increment();
+	}
 
-		return stats;
+	private List<OrderSearchIndex.Document> readSearchDocuments() {
+		Map<Long, List<String>> productNames = new HashMap<>();
+		for (Object[] row : orderRepository.findSearchProductNames()) {
+			productNames.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+		}
+		List<OrderSearchIndex.Document> documents = new ArrayList<>();
+		for (Object[] row : orderRepository.findSearchFields()) {
+			Long id = (Long) row[0];
+			documents.add(searchDocument(id, (LocalDate) row[1], (LocalTime) row[2], (OrderState) row[3],
+					(String) row[4], (String) row[5], (String) row[6],
+					productNames.getOrDefault(id, Collections.emptyList())));
+		}
+		return documents;
 	}
 
-	public DashboardData getDashboardData(int month, int year) {
-		DashboardData data = new DashboardData();
-		data.setDeliveryStats(getDeliveryStats());
-		data.setDeliveriesThisMonth(getDeliveriesPerDay(month, year));
-		data.setDeliveriesThisYear(getDeliveriesPerMonth(year));
-
-		Number[][] salesPerMonth = new Number[3][12];
-		data.setSalesPerMonth(salesPerMonth);
-		List<Object[]> sales = orderRepository.sumPerMonthLastThreeYears(OrderState.DELIVERED, year);
-
-		for (Object[] salesData : sales) {
-			// year, month, deliveries
-			int y = year - (int) salesData[0];
-			int m = (int) salesData[1] - 1;
-			if (y == 0 && m == month - 1) {
-				// skip current month as it contains incomplete data
-				continue;
+	private static OrderSearchIndex.Document searchDocument(Order order) {
+		return searchDocument(order.getId(), order.getDueDate(), order.getDueTime(), order.getState(),
+				order.getCustomer().getFullName(), order.getCustomer().getPhoneNumber(),
+				order.getPickupLocation().getName(),
+				order.getItems().stream().map(item -> item.getProduct().getName()).collect(Collectors.toList()));
+	}
+
+	private static OrderSearchIndex.Document searchDocument(Long id, LocalDate dueDate, LocalTime dueTime,
+			OrderState state, String customerFullName, String customerPhoneNumber, String pickupLocationName,
+			List<String> productNames) {
+		List<String> fields = new ArrayList<>(
+				Arrays.asList(customerFullName, customerPhoneNumber, pickupLocationName, state.getDisplayName()));
+		fields.addAll(productNames);
+		return new OrderSearchIndex.Document(id, fields, dueDate, dueTime);
+	}
+
+	/**
+	 * Appends a comment to the history of the order without loading or merging
+	 * the order: the history item is inserted and the version of the order is
+	 * incremented, failing if the order has been changed since it was read.
+	 *
+	 * @return the new version of the order
+	 */
+	@Transactional(rollbackOn = Exception.class)
+	public int addComment(User currentUser, Order order, String comment) {
+		if (orderRepository.incrementVersion(order.getId(), order.getVersion()) == 0) {
+			throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+		}
+		HistoryItem historyItem = new HistoryItem(currentUser, comment);
+		historyItem.setNewState(order.getState());
+		appendHistoryItem(order.getId(), historyItem);
+		orderDataVersion.increment();
+		return order.getVersion() + 1;
+	}
+
+	// Stores a copy, as the id given to a stored item is not taken back if the
+	// transaction rolls back
+	private static HistoryItem copyOf(HistoryItem historyItem) {
+		HistoryItem copy = new HistoryItem(historyItem.getCreatedBy(), historyItem.getMessage());
+		copy.setNewState(historyItem.getNewState());
+		copy.setTimestamp(historyItem.getTimestamp());
+		return copy;
+	}
+
+	// The caller must hold the lock of the order row, so that no other
+	// transaction appends to the same position
+	private void appendHistoryItem(Long orderId, HistoryItem historyItem) {
+		HistoryItem saved = historyItemRepository.save(historyItem);
+		historyItemRepository.appendToOrder(saved.getId(), orderId, historyItemRepository.countByOrder(orderId));
+	}
+
+	/**
+	 * Reads a page of the history of an order, newest first.
+	 */
+	public List<HistoryItem> findHistory(Long orderId, int offset, int limit) {
+		return historyItemRepository.findByOrderNewestFirst(orderId, offset, limit);
+	}
+
+	public int countHistory(Long orderId) {
+		return historyItemRepository.countByOrder(orderId);
+	}
+
+	public Optional<OrderDueTime> findNextReadyOrder(LocalDateTime now) {
+		return orderRepository.findNextDue(OrderState.READY, now.toLocalDate(), now.toLocalTime(), Limit.of(1))
+				.stream().findFirst();
+	}
+
+	public Optional<LocalTime> findFirstDueTime(LocalDate dueDate) {
+		return orderRepository.findFirstByDueDateOrderByDueTimeAsc(dueDate).map(OrderDueTime::getDueTime);
+	}
+
+	public Optional<LocalDateTime> findLastPlacementTimeStartingFrom(LocalDate dueDate) {
+		return orderRepository.findLastPlacementTime(dueDate, Limit.of(1)).stream().findFirst();
+	}
+
+	/**
+	 * Reads the times shown next to the dashboard counters, running the three
+	 * queries concurrently in the background.
+	 */
+	public CompletableFuture<OrderTimes> getOrderTimesAsync(LocalDateTime now) {
+		CompletableFuture<Optional<OrderDueTime>> nextReadyOrder = supplyAsync(() -> findNextReadyOrder(now));
+		CompletableFuture<Optional<LocalTime>> firstDueTomorrow = supplyAsync(
+				() -> findFirstDueTime(now.toLocalDate().plusDays(1)));
+		CompletableFuture<Optional<LocalDateTime>> lastPlacementTime = supplyAsync(
+				() -> findLastPlacementTimeStartingFrom(now.toLocalDate()));
+		return CompletableFuture.allOf(nextReadyOrder, firstDueTomorrow, lastPlacementTime).thenApply(
+				v -> new OrderTimes(nextReadyOrder.join(), firstDueTomorrow.join(), lastPlacementTime.join()));
+	}
+
+	/**
+	 * Returns the orders following the given scroll position. A keyset position
+	 * makes the database seek to it instead of skipping all the preceding rows.
+	 * The orders are read as {@link OrderBrief}s without loading any entities.
+	 * <p>
+	 * Orders matching a search text are found in the {@link OrderSearchIndex},
+	 * in the order of due date, due time and id. The orders found are shared by
+	 * all users until the orders change, and every page is read from them.
+	 */
+	public List<OrderBrief> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
+			Optional<LocalDate> optionalFilterDate, ScrollPosition position, Limit limit, Sort sort) {
+		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+			String filter = optionalFilter.get();
+			LocalDate dueAfter = optionalFilterDate.orElse(null);
+			if (!orderSearchIndex.isIndexed(filter)) {
+				// Most orders match a short text, so a page is found sooner by
+				// walking the orders than by collecting all the matches
+				return findBriefs(orderSearchIndex.find(filter, dueAfter, position, limit.max()));
 			}
-			long count = (long) salesData[2];
-			salesPerMonth[y][m] = count;
+			// The index is updated before the version moves, so reading the
+			// version first never pairs it with results older than it
+			SearchResultCache.Key key = SearchResultCache.Key.matches(filter, dueAfter, orderDataVersion.get());
+			return findBriefs(searchResultCache.matches(key, () -> orderSearchIndex.search(filter, dueAfter))
+					.find(position, limit.max()));
+		}
+		// The keyset condition is a chain of ORs that databases do not use for
+		// seeking in the index. Stating the due date bound it implies does.
+		if (position instanceof KeysetScrollPosition
+				&& ((KeysetScrollPosition) position).getKeys().get("dueDate") instanceof LocalDate) {
+			LocalDate bound = ((LocalDate) ((KeysetScrollPosition) position).getKeys().get("dueDate")).minusDays(1);
+			if (optionalFilterDate.map(bound::isAfter).orElse(true)) {
+				optionalFilterDate = Optional.of(bound);
+			}
+		}
+		Window<OrderKey> keys;
+		if (optionalFilterDate.isPresent()) {
+			keys = orderRepository.findKeysByDueDateAfter(optionalFilterDate.get(), position, limit, sort);
+		} else {
+			keys = orderRepository.findKeysBy(position, limit, sort);
+		}
+		return findBriefs(keys.stream().map(OrderKey::getId).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Tells whether the given order is among the orders matching the search
+	 * text and due after the given date.
+	 */
+	public boolean isMatchingAfterDueDate(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate,
+			OrderBrief order) {
+		if (optionalFilterDate.isPresent() && !order.getDueDate().isAfter(optionalFilterDate.get())) {
+			return false;
+		}
+		return optionalFilter.filter(filter -> !filter.isEmpty())
+				.map(filter -> orderSearchIndex.matches(filter, order.getId())).orElse(true);
+	}
+
+	/**
+	 * Returns the id of the first order in the order lists that matches the
+	 * search text and is due after the first date and before the second one.
+	 * Either date can be <code>null</code>. Used for finding where the groups
+	 * of the lists start, with one index lookup per group.
+	 */
+	public Optional<Long> findFirstMatchingDueBetween(Optional<String> optionalFilter, LocalDate dueAfter,
+			LocalDate dueBefore) {
+		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+			return orderSearchIndex.findFirst(optionalFilter.get(), dueAfter, dueBefore);
+		}
+		Optional<OrderKey> first = dueAfter == null ? orderRepository.findFirstKeyByOrderByDueDateAscDueTimeAscIdAsc()
+				: orderRepository.findFirstKeyByDueDateAfterOrderByDueDateAscDueTimeAscIdAsc(dueAfter);
+		return first.filter(key -> dueBefore == null || key.getDueDate().isBefore(dueBefore)).map(OrderKey::getId);
+	}
+
+	private List<OrderBrief> findBriefs(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<Long, List<OrderBrief.Item>> items = new HashMap<>();
+		for (Object[] row : orderRepository.findBriefItemsByOrderIdIn(ids)) {
+			items.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+					.add(new OrderBrief.Item((Integer) row[1], (String) row[2]));
 		}
+		Map<Long, OrderBrief> briefs = new HashMap<>();
+		for (Object[] row : orderRepository.findBriefsByIdIn(ids)) {
+			Long id = (Long) row[0];
+			briefs.put(id, new OrderBrief(id, (Integer) row[1], (LocalDate) row[2], (LocalTime) row[3],
+					(OrderState) row[4], (String) row[5], (String) row[6], items.getOrDefault(id, Collections.emptyList())));
+		}
+		// Orders deleted after their keys were read are left out
+		return ids.stream().map(briefs::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
 
-		LinkedHashMap<Product, Integer> productDeliveries = new LinkedHashMap<>();
-		data.setProductDeliveries(productDeliveries);
-		for (Object[] result : orderRepository.countPerProduct(OrderState.DELIVERED, year, month)) {
-			int sum = ((Long) result[0]).intValue();
-			Product p = (Product) result[1];
-			productDeliveries.put(p, sum);
+	public long countAnyMatchingAfterDueDate(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate) {
+		if (optionalFilter.filter(filter -> !filter.isEmpty()).isEmpty()) {
+			// Without a search text, the orders per due date are already counted
+			// in the sales cube
+			return salesCube.sum(Measure.ORDERS, optionalFilterDate
+					.map(filterDate -> SalesCube.Slice.startingFrom(filterDate.plusDays(1))).orElse(SalesCube.Slice.all()));
+		} else {
+			String filter = optionalFilter.get();
+			LocalDate dueAfter = optionalFilterDate.orElse(null);
+			if (orderSearchIndex.isIndexed(filter)) {
+				// The same matches as the pages are read from
+				SearchResultCache.Key key = SearchResultCache.Key.matches(filter, dueAfter, orderDataVersion.get());
+				return searchResultCache.matches(key, () -> orderSearchIndex.search(filter, dueAfter)).size();
+			}
+			SearchResultCache.Key key = SearchResultCache.Key.count(filter, dueAfter, orderDataVersion.get());
+			return searchResultCache.count(key, () -> orderSearchIndex.count(filter, dueAfter));
 		}
+	}
 
-		return data;
+	// Summed from the sales cube, the database is not read at all
+	private DeliveryStats getDeliveryStats(LocalDate today) {
+		SalesCube.Slice dueToday = SalesCube.Slice.between(today, today.plusDays(1));
+		SalesCube.Slice dueTomorrow = SalesCube.Slice.between(today.plusDays(1), today.plusDays(2));
+		return new DeliveryStats(salesCube.sum(Measure.ORDERS, dueToday.inState(OrderState.DELIVERED)),
+				salesCube.sum(Measure.ORDERS, dueToday), salesCube.sum(Measure.ORDERS, dueTomorrow),
+				salesCube.sum(Measure.ORDERS, dueToday.inStates(notAvailableStates)),
+				salesCube.sum(Measure.ORDERS, SalesCube.Slice.all().inState(OrderState.NEW)));
 	}
 
-	private List<Number> getDeliveriesPerDay(int month, int year) {
-		int daysInMonth = YearMonth.of(year, month).lengthOfMonth();
-		return flattenAndReplaceMissingWithNull(daysInMonth,
-				orderRepository.countPerDay(OrderState.DELIVERED, year, month));
+	public DashboardData getDashboardData(int month, int year) {
+		LocalDate today = LocalDate.now();
+		DashboardDataCache.Key key = new DashboardDataCache.Key(month, year, today, orderDataVersion.get());
+		return dashboardDataCache.get(key, () -> buildDashboardData(month, year, today));
 	}
 
-	private List<Number> getDeliveriesPerMonth(int year) {
-		return flattenAndReplaceMissingWithNull(12, orderRepository.countPerMonth(OrderState.DELIVERED, year));
+	/**
+	 * Returns the dashboard data, computing it in the background if it is not
+	 * cached.
+	 */
+	public CompletableFuture<DashboardData> getDashboardDataAsync(int month, int year) {
+		LocalDate today = LocalDate.now();
+		DashboardDataCache.Key key = new DashboardDataCache.Key(month, year, today, orderDataVersion.get());
+		return dashboardDataCache.getAsync(key, () -> supplyAsync(() -> buildDashboardData(month, year, today)));
 	}
 
-	private List<Number> flattenAndReplaceMissingWithNull(int length, List<Object[]> list) {
-		List<Number> counts = new ArrayList<>();
-		for (int i = 0; i < length; i++) {
-			counts.add(null);
+	/**
+	 * Computes the dashboard data of the month of the given day, as it is seen on
+	 * that day, and stores it in the cache. Used for preparing the data before
+	 * the date changes. Until the day begins, the data is prepared again after
+	 * every change of the orders, as the cache entry is only valid for the
+	 * order data version it was prepared at.
+	 */
+	public void prepareDashboardData(LocalDate day) {
+		preparedDay = day;
+		DashboardDataCache.Key key = new DashboardDataCache.Key(day.getMonthValue(), day.getYear(), day,
+				orderDataVersion.get());
+		if (!dashboardDataCache.contains(key)) {
+			dashboardDataCache.put(key, buildDashboardData(day.getMonthValue(), day.getYear(), day));
 		}
+	}
+
+	/**
+	 * Adds a listener that receives the dashboard data of the current month and
+	 * the order times whenever orders have changed. Changes made in quick
+	 * succession are reported once. The data is read once for all the listeners.
+	 */
+	public Registration addDashboardListener(BiConsumer<DashboardData, OrderTimes> listener) {
+		dashboardListeners.add(listener);
+		return () -> dashboardListeners.remove(listener);
+	}
 
-		for (Object[] result : list) {
-			counts.set((Integer) result[0] - 1, (Number) result[1]);
+	private void scheduleDashboardUpdate() {
+		if (!dashboardListeners.isEmpty() && dashboardUpdatePending.compareAndSet(false, true)) {
+			dashboardExecutor.execute(this::publishDashboardUpdate);
 		}
-		return counts;
+	}
+
+	private void schedulePreparedDataUpdate() {
+		LocalDate day = preparedDay;
+		if (day != null && LocalDate.now().isBefore(day) && preparePending.compareAndSet(false, true)) {
+			dashboardExecutor.execute(() -> {
+				preparePending.set(false);
+				prepareDashboardData(day);
+			});
+		}
+	}
+
+	// Synchronized so that listeners never receive older data after newer data
+	private synchronized void publishDashboardUpdate() {
+		dashboardUpdatePending.set(false);
+		LocalDateTime now = LocalDateTime.now();
+		DashboardData data = getDashboardData(now.getMonthValue(), now.getYear());
+		OrderTimes times = new OrderTimes(findNextReadyOrder(now), findFirstDueTime(now.toLocalDate().plusDays(1)),
+				findLastPlacementTimeStartingFrom(now.toLocalDate()));
+		dashboardListeners.forEach(listener -> listener.accept(data, times));
+	}
+
+	// All the numbers come from the in-memory sales cube, only the product
+	// names are read from the database
+	private DashboardData buildDashboardData(int month, int year, LocalDate today) {
+		YearMonth yearMonth = YearMonth.of(year, month);
+		SalesCube.Slice thisMonth = SalesCube.Slice.between(yearMonth.atDay(1), yearMonth.plusMonths(1).atDay(1))
+				.inState(OrderState.DELIVERED);
+		SalesCube.Slice thisYear = SalesCube.Slice.between(LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1))
+				.inState(OrderState.DELIVERED);
+
+		DashboardData.Builder data = new DashboardData.Builder(yearMonth.lengthOfMonth());
+		data.setDeliveryStats(getDeliveryStats(today));
+		salesCube.sum(Measure.ORDERS, Dimension.DAY_OF_MONTH, thisMonth,
+				(day, deliveries) -> data.setDeliveriesThisMonth((int) day, deliveries));
+		salesCube.sum(Measure.ORDERS, Dimension.MONTH, thisYear,
+				(m, deliveries) -> data.setDeliveriesThisYear((int) m, deliveries));
+		for (int yearsAgo = 0; yearsAgo < DashboardData.SALES_YEARS; yearsAgo++) {
+			int y = yearsAgo;
+			SalesCube.Slice slice = SalesCube.Slice
+					.between(LocalDate.of(year - y, 1, 1), LocalDate.of(year - y + 1, 1, 1))
+					.inState(OrderState.DELIVERED);
+			salesCube.sum(Measure.SALES, Dimension.MONTH, slice, (m, sales) -> {
+				// skip current month as it contains incomplete data
+				if (y != 0 || m != month) {
+					data.setSalesPerMonth(y, (int) m, sales);
+				}
+			});
+		}
+
+		Map<Long, Long> productDeliveries = new LinkedHashMap<>();
+		salesCube.sum(Measure.QUANTITY, Dimension.PRODUCT, thisMonth, productDeliveries::put);
+		Map<Long, String> productNames = new HashMap<>();
+		productRepository.findAllById(productDeliveries.keySet())
+				.forEach(product -> productNames.put(product.getId(), product.getName()));
+		productDeliveries.forEach((productId, deliveries) -> data.addProductDeliveries(productId,
+				productNames.getOrDefault(productId, ""), deliveries));
+		return data.build();
+	}
+
+	private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(supplier, dashboardExecutor);
 	}
 
 	@Override
@@ -17,10 +17,12 @@ import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
 public class ProductService implements FilterableCrudService<Product> {
 
 	private final ProductRepository productRepository;
+	private final OrderService orderService;
 
 	@Autowired
-	public ProductService(ProductRepository productRepository) {
+	public ProductService(ProductRepository productRepository, OrderService orderService) {
 		this.productRepository = productRepository;
+		this.orderService = orderService;
 	}
 
 	@Override
@@ -59,8 +61,15 @@ public class ProductService implements FilterableCrudService<Product> {
 
 	@Override
 	public Product save(User currentUser, Product entity) {
+		boolean renamed = entity.getId() != null && productRepository.findById(entity.getId())
+				.map(product -> !product.getName().equals(entity.getName())).orElse(false);
 		try {
-			return FilterableCrudService.super.save(currentUser, entity);
+			Product saved = FilterableCrudService.super.save(currentUser, entity);
+			if (renamed) {
+				// Orders are searched by the names of their products
+				orderService.loadSearchIndex();
+			}
+			return saved;
 		} catch (DataIntegrityViolationException e) {
 			throw new UserFriendlyDataException(
 					"There is already a product with that name. Please select a unique name for the product.");
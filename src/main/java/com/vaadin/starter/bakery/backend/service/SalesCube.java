@@ -0,0 +1,358 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.OrderRollup;
+
+/**
+ * In-memory copy of the order rollups, stored column by column in primitive
+ * arrays. Each cell holds the order count, quantity and sales of one due date,
+ * order state, pickup location and product, and slices of it are summed with
+ * a single scan.
+ * <p>
+ * Order counts are not split per product: they are only found in cells
+ * without a product, while quantities and sales are only found in cells with
+ * one.
+ */
+@Component
+public class SalesCube {
+
+	public enum Measure {
+		ORDERS, QUANTITY, SALES
+	}
+
+	public enum Dimension {
+		DAY_OF_MONTH, MONTH, YEAR, PRODUCT, PICKUP_LOCATION
+	}
+
+	@FunctionalInterface
+	public interface GroupConsumer {
+		void accept(long group, long value);
+	}
+
+	/**
+	 * Selects the cells to sum: a due date range, where the end is exclusive,
+	 * and optionally a set of states, a product and a pickup location.
+	 */
+	public static final class Slice {
+		private final LocalDate from;
+		private final LocalDate to;
+		private final int states;
+		private final Long productId;
+		private final Long pickupLocationId;
+
+		private Slice(LocalDate from, LocalDate to, int states, Long productId, Long pickupLocationId) {
+			this.from = from;
+			this.to = to;
+			this.states = states;
+			this.productId = productId;
+			this.pickupLocationId = pickupLocationId;
+		}
+
+		public static Slice between(LocalDate from, LocalDate to) {
+			return new Slice(from, to, -1, null, null);
+		}
+
+		public static Slice startingFrom(LocalDate from) {
+			return new Slice(from, null, -1, null, null);
+		}
+
+		public static Slice all() {
+			return new Slice(null, null, -1, null, null);
+		}
+
+		public Slice inStates(Collection<OrderState> states) {
+			int mask = 0;
+			for (OrderState state : states) {
+				mask |= 1 << state.ordinal();
+			}
+			return new Slice(from, to, mask, productId, pickupLocationId);
+		}
+
+		public Slice inState(OrderState state) {
+			return inStates(EnumSet.of(state));
+		}
+
+		public Slice forProduct(long productId) {
+			return new Slice(from, to, states, productId, pickupLocationId);
+		}
+
+		public Slice forPickupLocation(long pickupLocationId) {
+			return new Slice(from, to, states, productId, pickupLocationId);
+		}
+	}
+
+	private static final int NO_PRODUCT = -1;
+	// Indexes take 14 bits of a cell key, product indexes plus one so that the
+	// order count cell has its own key
+	private static final int MAX_DICTIONARY_SIZE = (1 << 14) - 1;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Long, Integer> cells = new HashMap<>();
+	private final Dictionary products = new Dictionary();
+	private final Dictionary pickupLocations = new Dictionary();
+	private int size;
+	private int[] epochDay = new int[0];
+	private short[] year = new short[0];
+	private byte[] month = new byte[0];
+	private byte[] dayOfMonth = new byte[0];
+	private byte[] state = new byte[0];
+	private int[] pickupLocation = new int[0];
+	private int[] product = new int[0];
+	private long[] orders = new long[0];
+	private long[] quantity = new long[0];
+	private long[] sales = new long[0];
+
+	/**
+	 * Replaces the content of the cube with the given rollups.
+	 */
+	public void load(Collection<OrderRollup> rollups) {
+		lock.writeLock().lock();
+		try {
+			cells.clear();
+			products.clear();
+			pickupLocations.clear();
+			size = 0;
+			orders = new long[0];
+			quantity = new long[0];
+			sales = new long[0];
+			resize(Math.max(16, rollups.size()));
+			for (OrderRollup rollup : rollups) {
+				add(rollup.getDueDate(), rollup.getState(), rollup.getPickupLocation().getId(),
+						rollup.getProduct() == null ? null : rollup.getProduct().getId(), rollup.getOrderCount(),
+						rollup.getQuantity(), rollup.getSales());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the given amounts, which can be negative, to a cell. A
+	 * <code>null</code> product means the order count cell.
+	 */
+	public void add(LocalDate dueDate, OrderState orderState, long pickupLocationId, Long productId,
+			long orderCount, long quantity, long sales) {
+		lock.writeLock().lock();
+		try {
+			int location = pickupLocations.indexOf(pickupLocationId);
+			int productIndex = productId == null ? NO_PRODUCT : products.indexOf(productId);
+			long key = ((long) dueDate.toEpochDay() << 32) | ((long) orderState.ordinal() << 28)
+					| ((long) location << 14) | (productIndex + 1);
+			Integer cell = cells.get(key);
+			if (cell == null) {
+				cell = size;
+				if (size == epochDay.length) {
+					resize(Math.max(16, size * 2));
+				}
+				epochDay[cell] = (int) dueDate.toEpochDay();
+				year[cell] = (short) dueDate.getYear();
+				month[cell] = (byte) dueDate.getMonthValue();
+				dayOfMonth[cell] = (byte) dueDate.getDayOfMonth();
+				state[cell] = (byte) orderState.ordinal();
+				pickupLocation[cell] = location;
+				product[cell] = productIndex;
+				cells.put(key, cell);
+				size++;
+			}
+			this.orders[cell] += orderCount;
+			this.quantity[cell] += quantity;
+			this.sales[cell] += sales;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public long sum(Measure measure, Slice slice) {
+		long[] total = new long[1];
+		sum(measure, null, slice, (group, value) -> total[0] += value);
+		return total[0];
+	}
+
+	/**
+	 * Sums the given measure over the slice, grouped by the given dimension.
+	 * Groups are reported in ascending order and only if the slice has at
+	 * least one non-empty cell in them; the group is the day of month, month
+	 * or year number, or the product or pickup location id.
+	 */
+	public void sum(Measure measure, Dimension groupBy, Slice slice, GroupConsumer consumer) {
+		lock.readLock().lock();
+		try {
+			int firstYear = 0;
+			int groups;
+			if (groupBy == null) {
+				groups = 1;
+			} else {
+				switch (groupBy) {
+				case DAY_OF_MONTH:
+					groups = 31;
+					break;
+				case MONTH:
+					groups = 12;
+					break;
+				case YEAR:
+					if (slice.from == null || slice.to == null) {
+						throw new IllegalArgumentException("Grouping by year requires a bounded slice");
+					}
+					firstYear = slice.from.getYear();
+					groups = slice.to.getYear() - firstYear + 1;
+					break;
+				case PRODUCT:
+					groups = products.size();
+					break;
+				default:
+					groups = pickupLocations.size();
+				}
+			}
+
+			long[] values = measure == Measure.ORDERS ? orders : measure == Measure.QUANTITY ? quantity : sales;
+			boolean productCells = measure != Measure.ORDERS;
+			int from = slice.from == null ? Integer.MIN_VALUE : (int) slice.from.toEpochDay();
+			int to = slice.to == null ? Integer.MAX_VALUE : (int) slice.to.toEpochDay();
+			int productFilter = slice.productId == null ? NO_PRODUCT : products.find(slice.productId);
+			int locationFilter = slice.pickupLocationId == null ? -1 : pickupLocations.find(slice.pickupLocationId);
+			if ((slice.productId != null && (productFilter < 0 || !productCells))
+					|| (slice.pickupLocationId != null && locationFilter < 0)) {
+				return;
+			}
+
+			long[] totals = new long[groups];
+			boolean[] present = new boolean[groups];
+			for (int i = 0; i < size; i++) {
+				if (epochDay[i] < from || epochDay[i] >= to || (slice.states & (1 << state[i])) == 0
+						|| (product[i] != NO_PRODUCT) != productCells
+						|| (productFilter != NO_PRODUCT && product[i] != productFilter)
+						|| (locationFilter >= 0 && pickupLocation[i] != locationFilter)
+						|| (orders[i] == 0 && quantity[i] == 0 && sales[i] == 0)) {
+					continue;
+				}
+				int group = groupBy == null ? 0 : group(groupBy, i, firstYear);
+				totals[group] += values[i];
+				present[group] = true;
+			}
+
+			for (int group : order(groupBy, groups)) {
+				if (present[group]) {
+					consumer.accept(groupValue(groupBy, group, firstYear), totals[group]);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int group(Dimension groupBy, int cell, int firstYear) {
+		switch (groupBy) {
+		case DAY_OF_MONTH:
+			return dayOfMonth[cell] - 1;
+		case MONTH:
+			return month[cell] - 1;
+		case YEAR:
+			return year[cell] - firstYear;
+		case PRODUCT:
+			return product[cell];
+		default:
+			return pickupLocation[cell];
+		}
+	}
+
+	private long groupValue(Dimension groupBy, int group, int firstYear) {
+		if (groupBy == null) {
+			return 0;
+		}
+		switch (groupBy) {
+		case DAY_OF_MONTH:
+		case MONTH:
+			return group + 1;
+		case YEAR:
+			return firstYear + group;
+		case PRODUCT:
+			return products.id(group);
+		default:
+			return pickupLocations.id(group);
+		}
+	}
+
+	// Dictionary indexes follow insertion order, so ids are sorted here
+	private int[] order(Dimension groupBy, int groups) {
+		Dictionary dictionary = groupBy == Dimension.PRODUCT ? products
+				: groupBy == Dimension.PICKUP_LOCATION ? pickupLocations : null;
+		int[] order = new int[groups];
+		if (dictionary == null) {
+			for (int i = 0; i < groups; i++) {
+				order[i] = i;
+			}
+			return order;
+		}
+		long[] sorted = Arrays.copyOf(dictionary.ids, groups);
+		Arrays.sort(sorted);
+		for (int i = 0; i < groups; i++) {
+			order[i] = dictionary.find(sorted[i]);
+		}
+		return order;
+	}
+
+	private void resize(int capacity) {
+		epochDay = Arrays.copyOf(epochDay, capacity);
+		year = Arrays.copyOf(year, capacity);
+		month = Arrays.copyOf(month, capacity);
+		dayOfMonth = Arrays.copyOf(dayOfMonth, capacity);
+		state = Arrays.copyOf(state, capacity);
+		pickupLocation = Arrays.copyOf(pickupLocation, capacity);
+		product = Arrays.copyOf(product, capacity);
+		orders = Arrays.copyOf(orders, capacity);
+		quantity = Arrays.copyOf(quantity, capacity);
+		sales = Arrays.copyOf(sales, capacity);
+	}
+
+	/**
+	 * Maps entity ids to dense indexes.
+	 */
+	private static final class Dictionary {
+		private final Map<Long, Integer> indexes = new HashMap<>();
+		private long[] ids = new long[16];
+
+		int indexOf(long id) {
+			Integer index = indexes.get(id);
+			if (index == null) {
+				index = indexes.size();
+				if (index == MAX_DICTIONARY_SIZE) {
+					throw new IllegalStateException("Too many distinct ids in the sales cube");
+				}
+				if (index == ids.length) {
+					ids = Arrays.copyOf(ids, index * 2);
+				}
+				ids[index] = id;
+				indexes.put(id, index);
+			}
+			return index;
+		}
+
+		int find(long id) {
+			return indexes.getOrDefault(id, -1);
+		}
+
+		long id(int index) {
+			return ids[index];
+		}
+
+		int size() {
+			return indexes.size();
+		}
+
+		void clear() {
+			indexes.clear();
+		}
+	}
+}
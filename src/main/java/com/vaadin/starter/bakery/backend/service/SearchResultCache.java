@@ -0,0 +1,116 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of order search results shared by all users: the
+ * orders matching a search, from which every page is read, or only their
+ * number. Entries are keyed by the search text, ignoring case, the due date
+ * bound and the order data version, so results read before a change of the
+ * orders are never returned after it. The size of the cache is the number of
+ * orders kept in it, a number counts as one.
+ */
+public class SearchResultCache {
+
+	public static final class Key {
+		private final String text;
+		private final LocalDate dueAfter;
+		private final boolean count;
+		private final long version;
+
+		private Key(String text, LocalDate dueAfter, boolean count, long version) {
+			this.text = text.toLowerCase(Locale.ROOT);
+			this.dueAfter = dueAfter;
+			this.count = count;
+			this.version = version;
+		}
+
+		public static Key matches(String text, LocalDate dueAfter, long version) {
+			return new Key(text, dueAfter, false, version);
+		}
+
+		public static Key count(String text, LocalDate dueAfter, long version) {
+			return new Key(text, dueAfter, true, version);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Key that = (Key) o;
+			return count == that.count && version == that.version && text.equals(that.text)
+					&& Objects.equals(dueAfter, that.dueAfter);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(text, dueAfter, count, version);
+		}
+	}
+
+	private final Map<Key, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final int maxSize;
+	private int size;
+	private long latestVersion;
+
+	public SearchResultCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public OrderSearchIndex.Matches matches(Key key, Supplier<OrderSearchIndex.Matches> loader) {
+		Object matches = get(key);
+		if (matches == null) {
+			matches = loader.get();
+			put(key, matches);
+		}
+		return (OrderSearchIndex.Matches) matches;
+	}
+
+	public int count(Key key, IntSupplier loader) {
+		Object count = get(key);
+		if (count == null) {
+			count = loader.getAsInt();
+			put(key, count);
+		}
+		return (Integer) count;
+	}
+
+	private synchronized Object get(Key key) {
+		return entries.get(key);
+	}
+
+	// Searches run outside of the lock, so the same search may be stored twice
+	private synchronized void put(Key key, Object value) {
+		if (key.version < latestVersion) {
+			return;
+		}
+		if (key.version > latestVersion) {
+			// Entries of older versions can no longer be hit
+			entries.clear();
+			size = 0;
+			latestVersion = key.version;
+		}
+		Object previous = entries.put(key, value);
+		size += sizeOf(value) - (previous == null ? 0 : sizeOf(previous));
+		Iterator<Object> leastRecentlyUsed = entries.values().iterator();
+		while (size > maxSize) {
+			size -= sizeOf(leastRecentlyUsed.next());
+			leastRecentlyUsed.remove();
+		}
+	}
+
+	private static int sizeOf(Object value) {
+		return value instanceof OrderSearchIndex.Matches ? 1 + ((OrderSearchIndex.Matches) value).size() : 1;
+	}
+}
@@ -0,0 +1,29 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+final class TransactionUtils {
+
+	private TransactionUtils() {
+		// Static helpers only
+	}
+
+	/**
+	 * Runs the action once the current transaction has committed, or right
+	 * away when there is no transaction. The action is not run if the
+	 * transaction rolls back.
+	 */
+	static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
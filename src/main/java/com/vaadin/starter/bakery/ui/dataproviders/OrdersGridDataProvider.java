@@ -2,13 +2,25 @@ package com.vaadin.starter.bakery.ui.dataproviders;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
 import org.vaadin.artur.spring.dataprovider.FilterablePageableDataProvider;
 
@@ -17,7 +29,8 @@ import com.vaadin.flow.data.provider.QuerySortOrder;
 import com.vaadin.flow.data.provider.QuerySortOrderBuilder;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.flow.spring.annotation.UIScope;
-import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.app.ExecutorConfiguration;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 
@@ -26,7 +39,7 @@ import com.vaadin.starter.bakery.ui.utils.BakeryConst;
  */
 @SpringComponent
 @UIScope
-public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order, OrdersGridDataProvider.OrderFilter> {
+public class OrdersGridDataProvider extends FilterablePageableDataProvider<OrderBrief, OrdersGridDataProvider.OrderFilter> {
 
 	public static class OrderFilter implements Serializable {
 		private String filter;
@@ -50,13 +63,44 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 		}
 	}
 
+	private static final Sort SORT = Sort.by(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
+
+	private static final int MAX_PREFETCH_PAGES = 2;
+	// Pages requested quicker than this after each other are fast scrolling
+	private static final long FAST_SCROLL_MILLIS = 500;
+
 	private final OrderService orderService;
+	private final Executor prefetchExecutor;
 	private List<QuerySortOrder> defaultSortOrders;
-	private Consumer<Page<Order>> pageObserver;
-	
+
+	// Positions of the orders that end the pages fetched so far, keyed by the
+	// index of the row that follows them. Only valid for the filter they were
+	// read with.
+	private final Map<Integer, KeysetScrollPosition> seekPositions = new HashMap<>();
+	private Optional<String> seekFilter;
+	private Optional<LocalDate> seekFilterDate;
+
+	// Pages fetched ahead in the scroll direction, keyed by their offset, and
+	// the previous request they were predicted from
+	private final Map<Integer, Prefetch> prefetched = new HashMap<>();
+	private int lastOffset = -1;
+	private long lastFetchTime;
+
+	private static final class Prefetch {
+		private final int pageSize;
+		private final CompletableFuture<List<OrderBrief>> orders;
+
+		Prefetch(int pageSize, CompletableFuture<List<OrderBrief>> orders) {
+			this.pageSize = pageSize;
+			this.orders = orders;
+		}
+	}
+
 	@Autowired
-	public OrdersGridDataProvider(OrderService orderService) {
+	public OrdersGridDataProvider(OrderService orderService,
+			@Qualifier(ExecutorConfiguration.PREFETCH_EXECUTOR) Executor prefetchExecutor) {
 		this.orderService = orderService;
+		this.prefetchExecutor = prefetchExecutor;
 		setSortOrders(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
 	}
 
@@ -72,24 +116,151 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 		defaultSortOrders = builder.build();
 	}
 
+	/**
+	 * Fetches the requested rows by seeking after the last order of the previous
+	 * page when that page has been read, so that scrolling deep into the orders
+	 * does not make the database skip ever more rows. Other requests, such as
+	 * jumps to a far away row, fall back to offset paging.
+	 * <p>
+	 * The next pages in the scroll direction are then fetched in the
+	 * background, two of them when scrolling fast, so that they are ready when
+	 * the grid asks for them.
+	 */
 	@Override
-	protected Page<Order> fetchFromBackEnd(Query<Order, OrderFilter> query, Pageable pageable) {
+	protected Page<OrderBrief> fetchFromBackEnd(Query<OrderBrief, OrderFilter> query, Pageable pageable) {
 		OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
-		Page<Order> page = orderService.findAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()),
-				getFilterDate(filter.isShowPrevious()), pageable);
-		if (pageObserver != null) {
-			pageObserver.accept(page);
+		Optional<String> optionalFilter = Optional.ofNullable(filter.getFilter());
+		Optional<LocalDate> optionalFilterDate = getFilterDate(filter.isShowPrevious());
+		if (!optionalFilter.equals(seekFilter) || !optionalFilterDate.equals(seekFilterDate)) {
+			seekPositions.clear();
+			prefetched.clear();
+			seekFilter = optionalFilter;
+			seekFilterDate = optionalFilterDate;
+		}
+
+		int offset = (int) pageable.getOffset();
+		int pageSize = pageable.getPageSize();
+		List<OrderBrief> orders = takePrefetched(offset, pageSize);
+		if (orders == null) {
+			orders = orderService.findAnyMatchingAfterDueDate(optionalFilter, optionalFilterDate, positionAt(offset),
+					Limit.of(pageSize), SORT);
 		}
+		Page<OrderBrief> page = new PageImpl<>(orders, pageable, offset + orders.size());
+
+		if (!orders.isEmpty()) {
+			OrderBrief last = orders.get(orders.size() - 1);
+			seekPositions.put(offset + orders.size(), ScrollPosition.forward(
+					Map.of("dueDate", last.getDueDate(), "dueTime", last.getDueTime(), "id", last.getId())));
+		}
+		prefetch(optionalFilter, optionalFilterDate, offset, pageSize, orders.size() == pageSize);
 		return page;
 	}
 
+	private ScrollPosition positionAt(int offset) {
+		ScrollPosition position = offset == 0 ? ScrollPosition.keyset() : seekPositions.get(offset);
+		return position != null ? position : ScrollPosition.offset(offset - 1);
+	}
+
+	private List<OrderBrief> takePrefetched(int offset, int pageSize) {
+		Prefetch prefetch = prefetched.remove(offset);
+		if (prefetch == null || prefetch.pageSize < pageSize) {
+			return null;
+		}
+		try {
+			List<OrderBrief> orders = prefetch.orders.join();
+			return orders.size() > pageSize ? orders.subList(0, pageSize) : orders;
+		} catch (CompletionException | CancellationException e) {
+			// Fetched again on demand
+			return null;
+		}
+	}
+
+	private void prefetch(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate, int offset,
+			int pageSize, boolean hasMore) {
+		long now = System.currentTimeMillis();
+		int direction = lastOffset < 0 ? 1 : Integer.signum(offset - lastOffset);
+		int pages = now - lastFetchTime < FAST_SCROLL_MILLIS ? MAX_PREFETCH_PAGES : 1;
+		lastOffset = offset;
+		lastFetchTime = now;
+		prefetched.keySet().removeIf(prefetchedOffset -> (prefetchedOffset - offset) * direction <= 0);
+		if (direction == 0 || (direction > 0 && !hasMore)) {
+			return;
+		}
+		for (int i = 1; i <= pages; i++) {
+			int prefetchOffset = offset + direction * i * pageSize;
+			if (prefetchOffset < 0 || prefetched.containsKey(prefetchOffset)) {
+				continue;
+			}
+			ScrollPosition position = positionAt(prefetchOffset);
+			try {
+				prefetched.put(prefetchOffset, new Prefetch(pageSize, CompletableFuture.supplyAsync(
+						() -> orderService.findAnyMatchingAfterDueDate(optionalFilter, optionalFilterDate, position,
+								Limit.of(pageSize), SORT),
+						prefetchExecutor)));
+			} catch (RejectedExecutionException e) {
+				// The executor is busy, the pages are fetched on demand
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void refreshAll() {
+		seekPositions.clear();
+		prefetched.clear();
+		super.refreshAll();
+	}
+
+	/**
+	 * Refreshes the grid after the given order has been created. Nothing is
+	 * refreshed if the order is not shown with the current filter. Otherwise
+	 * the seek positions read so far are kept, the ones past the new order
+	 * moved one row down, so that the grid reads the visible rows again
+	 * without falling back to offset paging.
+	 */
+	public void refreshInserted(OrderBrief order) {
+		if (seekFilter == null) {
+			refreshAll();
+			return;
+		}
+		if (!orderService.isMatchingAfterDueDate(seekFilter, seekFilterDate, order)) {
+			return;
+		}
+		Map<Integer, KeysetScrollPosition> shifted = new HashMap<>();
+		seekPositions.forEach((offset, position) -> shifted
+				.put(isBefore(order, position) ? offset + 1 : offset, position));
+		seekPositions.clear();
+		seekPositions.putAll(shifted);
+		prefetched.clear();
+		super.refreshAll();
+	}
+
+	private static boolean isBefore(OrderBrief order, KeysetScrollPosition position) {
+		Map<String, Object> keys = position.getKeys();
+		int result = order.getDueDate().compareTo((LocalDate) keys.get("dueDate"));
+		if (result == 0) {
+			result = order.getDueTime().compareTo((LocalTime) keys.get("dueTime"));
+		}
+		if (result == 0) {
+			result = order.getId().compareTo((Long) keys.get("id"));
+		}
+		return result < 0;
+	}
+
+	@Override
+	public void refreshItem(OrderBrief item) {
+		// Prefetched pages may contain an older copy of the item
+		prefetched.clear();
+		super.refreshItem(item);
+	}
+
 	@Override
 	protected List<QuerySortOrder> getDefaultSortOrders() {
 		return defaultSortOrders;
 	}
 
 	@Override
-	protected int sizeInBackEnd(Query<Order, OrderFilter> query) {
+	protected int sizeInBackEnd(Query<OrderBrief, OrderFilter> query) {
 		OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
 		return (int) orderService
 				.countAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()), getFilterDate(filter.isShowPrevious()));
@@ -103,12 +274,8 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 		return Optional.of(LocalDate.now().minusDays(1));
 	}
 
-	public void setPageObserver(Consumer<Page<Order>> pageObserver) {
-		this.pageObserver = pageObserver;
-	}
-
 	@Override
-	public Object getId(Order item) {
+	public Object getId(OrderBrief item) {
 		return item.getId();
 	}
 }
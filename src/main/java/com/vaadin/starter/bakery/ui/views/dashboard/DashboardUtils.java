@@ -4,12 +4,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Iterator;
+import java.util.Optional;
 
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
-import com.vaadin.starter.bakery.backend.data.OrderState;
-import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.entity.OrderDueTime;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountData;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountDataWithChart;
 
@@ -19,36 +17,21 @@ public class DashboardUtils {
 	private static final String NEXT_DELIVERY_PATTERN = "Next Delivery %s";
 
 	public static OrdersCountDataWithChart getTodaysOrdersCountData(DeliveryStats deliveryStats,
-			Iterator<OrderSummary> ordersIterator) {
+			Optional<OrderDueTime> nextReadyOrder) {
 		OrdersCountDataWithChart ordersCountData = new OrdersCountDataWithChart("Remaining Today", null,
 				deliveryStats.getDueToday() - deliveryStats.getDeliveredToday(), deliveryStats.getDueToday());
 
 		LocalDate date = LocalDate.now();
-		LocalTime time = LocalTime.now();
-		while (ordersIterator.hasNext()) {
-
-			OrderSummary order = ordersIterator.next();
-			if (isOrderNextToDeliver(order, date, time)) {
-				if (order.getDueDate().isEqual(date))
-					ordersCountData.setSubtitle(String.format(NEXT_DELIVERY_PATTERN, order.getDueTime()));
-				else
-					ordersCountData.setSubtitle(String.format(NEXT_DELIVERY_PATTERN,
-							order.getDueDate().getMonthValue() + "/" + order.getDueDate().getDayOfMonth()));
-
-				break;
-			}
-
-		}
+		nextReadyOrder.ifPresent(order -> {
+			if (order.getDueDate().isEqual(date))
+				ordersCountData.setSubtitle(String.format(NEXT_DELIVERY_PATTERN, order.getDueTime()));
+			else
+				ordersCountData.setSubtitle(String.format(NEXT_DELIVERY_PATTERN,
+						order.getDueDate().getMonthValue() + "/" + order.getDueDate().getDayOfMonth()));
+		});
 		return ordersCountData;
 	}
 
-	private static boolean isOrderNextToDeliver(OrderSummary order, LocalDate nowDate, LocalTime nowTime) {
-		// ready order starting from current time
-		return order.getState() == OrderState.READY
-				&& ((order.getDueDate().isEqual(nowDate) && order.getDueTime().isAfter(nowTime))
-						|| order.getDueDate().isAfter(nowDate));
-	}
-
 	public static OrdersCountData getNotAvailableOrdersCountData(DeliveryStats deliveryStats) {
 		OrdersCountData ordersCountData = new OrdersCountData("Not Available", "Delivery tomorrow",
 				deliveryStats.getNotAvailableToday());
@@ -57,43 +40,22 @@ public class DashboardUtils {
 	}
 
 	public static OrdersCountData getTomorrowOrdersCountData(DeliveryStats deliveryStats,
-			Iterator<OrderSummary> ordersIterator) {
+			Optional<LocalTime> firstDueTime) {
 		OrdersCountData ordersCountData = new OrdersCountData("Tomorrow", null, deliveryStats.getDueTomorrow());
-
-		LocalDate date = LocalDate.now().plusDays(1);
-		LocalTime minTime = LocalTime.MAX;
-		while (ordersIterator.hasNext()) {
-			OrderSummary order = ordersIterator.next();
-			if (order.getDueDate().isBefore(date)) {
-				continue;
-			}
-
-			if (order.getDueDate().isEqual(date)) {
-				if (order.getDueTime().isBefore(minTime)) {
-					minTime = order.getDueTime();
-				}
-			}
-
-			if (order.getDueDate().isAfter(date)) {
-				break;
-			}
-		}
-
-		if (!LocalTime.MAX.equals(minTime))
-			ordersCountData.setSubtitle("First delivery " + minTime);
-
+		firstDueTime.ifPresent(time -> ordersCountData.setSubtitle("First delivery " + time));
 		return ordersCountData;
 	}
 
-	public static OrdersCountData getNewOrdersCountData(DeliveryStats deliveryStats, Order lastOrder) {
-		return new OrdersCountData("New", createSubtitle(lastOrder), deliveryStats.getNewOrders());
+	public static OrdersCountData getNewOrdersCountData(DeliveryStats deliveryStats,
+			Optional<LocalDateTime> lastPlacementTime) {
+		return new OrdersCountData("New", lastPlacementTime.map(DashboardUtils::createSubtitle).orElse(null),
+				deliveryStats.getNewOrders());
 	}
 
 	private static final String NEW_ORDERS_COUNT_SUBTITLE_PATTERN = "Last %d%s ago";
 
-	private static String createSubtitle(Order lastOrder) {
+	private static String createSubtitle(LocalDateTime timestamp) {
 		LocalDateTime currTime = LocalDateTime.now();
-		LocalDateTime timestamp = lastOrder.getHistory().get(0).getTimestamp();
 
 		long value = timestamp.until(currTime, ChronoUnit.DAYS);
 		if (value > 0) {
@@ -1,10 +1,15 @@
 package com.vaadin.starter.bakery.ui.views.dashboard;
 
 import java.time.LocalDate;
-import java.time.MonthDay;
+import java.time.LocalDateTime;
 import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -13,7 +18,9 @@ import jakarta.annotation.security.PermitAll;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.charts.Chart;
@@ -34,11 +41,12 @@ import com.vaadin.flow.component.littemplate.LitTemplate;
 import com.vaadin.flow.component.template.Id;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import com.vaadin.starter.bakery.app.HasLogger;
 import com.vaadin.starter.bakery.backend.data.DashboardData;
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
-import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
-import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
+import com.vaadin.starter.bakery.backend.data.OrderTimes;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.MainView;
 import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider;
@@ -52,13 +60,38 @@ import com.vaadin.starter.bakery.ui.views.storefront.beans.OrdersCountDataWithCh
 @Route(value = BakeryConst.PAGE_DASHBOARD, layout = MainView.class)
 @PageTitle(BakeryConst.TITLE_DASHBOARD)
 @PermitAll
-public class DashboardView extends LitTemplate {
+public class DashboardView extends LitTemplate implements HasLogger {
 
 	private static final String[] MONTH_LABELS = new String[] {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
 			"Aug", "Sep", "Oct", "Nov", "Dec"};
 
 	private final OrderService orderService;
 
+	private final Set<Chart> populatedCharts = new HashSet<>();
+
+	private boolean loadStarted;
+
+	private YearMonth shownMonth;
+
+	// The data shown in the charts, null until the first load has completed
+	private DashboardData shownData;
+
+	private OrderTimes shownTimes;
+
+	private DashboardData pendingData;
+
+	private OrderTimes pendingTimes;
+
+	private Registration dashboardListener;
+
+	private ListSeries deliveriesThisMonthSeries;
+
+	private ListSeries deliveriesThisYearSeries;
+
+	private final List<ListSeries> salesPerMonthSeries = new ArrayList<>();
+
+	private DataSeries deliveriesPerProductSeries;
+
 	@Id("todayCount")
 	private DashboardCounterLabel todayCount;
 
@@ -81,7 +114,7 @@ public class DashboardView extends LitTemplate {
 	private Chart yearlySalesGraph;
 
 	@Id("ordersGrid")
-	private Grid<Order> grid;
+	private Grid<OrderBrief> grid;
 
 	@Id("monthlyProductSplit")
 	private Chart monthlyProductSplit;
@@ -94,7 +127,7 @@ public class DashboardView extends LitTemplate {
 		this.orderService = orderService;
 
 		grid.addColumn(OrderCard.getTemplate()
-				.withProperty("orderCard", OrderCard::create)
+				.withProperty("orderCard", OrderCard::toJson)
 				.withProperty("header", order -> null)
 				.withFunction("cardClick",
 						order -> UI.getCurrent().navigate(BakeryConst.PAGE_STOREFRONT + "/" + order.getId())));
@@ -102,13 +135,124 @@ public class DashboardView extends LitTemplate {
 		grid.setSelectionMode(Grid.SelectionMode.NONE);
 		grid.setDataProvider(orderDataProvider);
 
-		DashboardData data = orderService.getDashboardData(MonthDay.now().getMonthValue(), Year.now().getValue());
+		measurePageLoadPerformance();
+	}
+
+	@Override
+	protected void onAttach(AttachEvent attachEvent) {
+		super.onAttach(attachEvent);
+		UI ui = attachEvent.getUI();
+		dashboardListener = orderService
+				.addDashboardListener((data, times) -> ui.accessLater(() -> updateData(data, times), null).run());
+		if (!loadStarted) {
+			loadStarted = true;
+			loadData(ui);
+		} else if (shownData != null) {
+			// Catch up with the changes made while detached
+			CompletableFuture<DashboardData> data = orderService
+					.getDashboardDataAsync(shownMonth.getMonthValue(), shownMonth.getYear());
+			CompletableFuture<OrderTimes> times = orderService.getOrderTimesAsync(LocalDateTime.now());
+			CompletableFuture.allOf(data, times)
+					.thenRun(ui.accessLater(() -> updateData(data.join(), times.join()), null))
+					.exceptionally(this::logLoadFailure);
+		}
+	}
+
+	@Override
+	protected void onDetach(DetachEvent detachEvent) {
+		dashboardListener.remove();
+		super.onDetach(detachEvent);
+	}
+
+	// The data is read in the background. The charts all come from the same
+	// cached DashboardData and are pushed to the browser together; the counters
+	// also wait for the order times, which are read from the database.
+	private void loadData(UI ui) {
+		shownMonth = YearMonth.now();
+		CompletableFuture<DashboardData> data = orderService.getDashboardDataAsync(shownMonth.getMonthValue(),
+				shownMonth.getYear());
+		CompletableFuture<OrderTimes> times = orderService.getOrderTimesAsync(LocalDateTime.now());
+
+		CompletableFuture.allOf(data.thenAccept(ui.accessLater(this::populateCharts, null)),
+				CompletableFuture.allOf(data, times).thenRun(ui.accessLater(
+						() -> populateOrdersCounts(data.join().getDeliveryStats(), times.join()), null)))
+				.thenRun(ui.accessLater(() -> dataShown(data.join(), times.join()), null))
+				.exceptionally(this::logLoadFailure);
+	}
+
+	private void populateCharts(DashboardData data) {
 		populateYearlySalesChart(data);
 		populateDeliveriesCharts(data);
-		populateOrdersCounts(data.getDeliveryStats());
-		initProductSplitMonthlyGraph(data.getProductDeliveries());
+		initProductSplitMonthlyGraph(data);
+	}
 
-		measurePageLoadPerformance();
+	private Void logLoadFailure(Throwable e) {
+		getLogger().error("Failed to load the dashboard data", e);
+		return null;
+	}
+
+	private void dataShown(DashboardData data, OrderTimes times) {
+		shownData = data;
+		shownTimes = times;
+		if (pendingData != null) {
+			updateData(pendingData, pendingTimes);
+			pendingData = null;
+			pendingTimes = null;
+		}
+	}
+
+	// Only the points and counters that have changed are sent to the browser
+	private void updateData(DashboardData data, OrderTimes times) {
+		if (shownData == null) {
+			pendingData = data;
+			pendingTimes = times;
+			return;
+		}
+		if (!shownMonth.equals(YearMonth.now())) {
+			return;
+		}
+		if (!data.getDeliveryStats().equals(shownData.getDeliveryStats()) || !times.equals(shownTimes)) {
+			populateOrdersCounts(data.getDeliveryStats(), times);
+		}
+		shownTimes = times;
+		if (data.equals(shownData)) {
+			return;
+		}
+		DashboardData previous = shownData;
+		shownData = data;
+
+		updatePoints(deliveriesThisMonthSeries, previous.getDeliveriesThisMonth(), data.getDeliveriesThisMonth());
+		updatePoints(deliveriesThisYearSeries, previous.getDeliveriesThisYear(), data.getDeliveriesThisYear());
+		for (int i = 0; i < salesPerMonthSeries.size(); i++) {
+			updatePoints(salesPerMonthSeries.get(i), previous.getSalesPerMonth(i), data.getSalesPerMonth(i));
+		}
+		updateProductDeliveries(data);
+	}
+
+	private void updatePoints(ListSeries series, Number[] previous, Number[] current) {
+		for (int i = 0; i < current.length && i < previous.length; i++) {
+			if (!Objects.equals(previous[i], current[i])) {
+				series.updatePoint(i, current[i]);
+			}
+		}
+	}
+
+	private void updateProductDeliveries(DashboardData data) {
+		Set<String> products = new HashSet<>();
+		for (int i = 0; i < data.getProductCount(); i++) {
+			String name = data.getProductName(i);
+			long deliveries = data.getProductDeliveries(i);
+			products.add(name);
+			DataSeriesItem item = deliveriesPerProductSeries.get(name);
+			if (item == null) {
+				deliveriesPerProductSeries.add(new DataSeriesItem(name, deliveries));
+			} else if (item.getY().longValue() != deliveries) {
+				item.setY(deliveries);
+				deliveriesPerProductSeries.update(item);
+			}
+		}
+		new ArrayList<>(deliveriesPerProductSeries.getData()).stream()
+				.filter(item -> !products.contains(item.getName())).forEach(deliveriesPerProductSeries::remove);
 	}
 
 	// This method is overridden to measure the page load performance and can be safely removed
@@ -117,8 +261,8 @@ public class DashboardView extends LitTemplate {
 		final int nTotal = 5; // the total number of charts on the page
 		AtomicInteger nLoaded = new AtomicInteger();
 		ComponentEventListener<ChartLoadEvent> chartLoadListener = (event) -> {
-			nLoaded.addAndGet(1);
-			if (nLoaded.get() == nTotal) {
+			// Only count the charts that have been drawn with their data
+			if (populatedCharts.contains(event.getSource()) && nLoaded.incrementAndGet() == nTotal) {
 				UI.getCurrent().getPage().executeJs("$0._chartsLoadedResolve()", this);
 			}
 		};
@@ -130,7 +274,12 @@ public class DashboardView extends LitTemplate {
 		monthlyProductSplit.addChartLoadListener(chartLoadListener);
 	}
 
-	private void initProductSplitMonthlyGraph(Map<Product, Integer> productDeliveries) {
+	private void draw(Chart chart) {
+		populatedCharts.add(chart);
+		chart.drawChart();
+	}
+
+	private void initProductSplitMonthlyGraph(DashboardData data) {
 
 		LocalDate today = LocalDate.now();
 
@@ -139,26 +288,27 @@ public class DashboardView extends LitTemplate {
 		conf.getChart().setBorderRadius(4);
 		conf.getChart().setStyledMode(true);
 		conf.setTitle("Products delivered in " + FormattingUtils.getFullMonthName(today));
-		DataSeries deliveriesPerProductSeries = new DataSeries(productDeliveries.entrySet().stream()
-				.map(e -> new DataSeriesItem(e.getKey().getName(), e.getValue())).collect(Collectors.toList()));
+		deliveriesPerProductSeries = new DataSeries(IntStream.range(0, data.getProductCount())
+				.mapToObj(i -> new DataSeriesItem(data.getProductName(i), data.getProductDeliveries(i)))
+				.collect(Collectors.toList()));
 		PlotOptionsPie plotOptionsPie = new PlotOptionsPie();
 		plotOptionsPie.setInnerSize("60%");
 		plotOptionsPie.getDataLabels().setCrop(false);
 		deliveriesPerProductSeries.setPlotOptions(plotOptionsPie);
 		conf.addSeries(deliveriesPerProductSeries);
+		draw(monthlyProductSplit);
 	}
 
-	private void populateOrdersCounts(DeliveryStats deliveryStats) {
-		List<OrderSummary> orders = orderService.findAnyMatchingStartingToday();
-
+	private void populateOrdersCounts(DeliveryStats deliveryStats, OrderTimes times) {
 		OrdersCountDataWithChart todaysOrdersCountData = DashboardUtils
-				.getTodaysOrdersCountData(deliveryStats, orders.iterator());
+				.getTodaysOrdersCountData(deliveryStats, times.getNextReadyOrder());
 		todayCount.setOrdersCountData(todaysOrdersCountData);
 		initTodayCountSolidgaugeChart(todaysOrdersCountData);
 		notAvailableCount.setOrdersCountData(DashboardUtils.getNotAvailableOrdersCountData(deliveryStats));
-		Order lastOrder = orderService.load(orders.get(orders.size() - 1).getId());
-		newCount.setOrdersCountData(DashboardUtils.getNewOrdersCountData(deliveryStats, lastOrder));
-		tomorrowCount.setOrdersCountData(DashboardUtils.getTomorrowOrdersCountData(deliveryStats, orders.iterator()));
+		newCount.setOrdersCountData(
+				DashboardUtils.getNewOrdersCountData(deliveryStats, times.getLastPlacementTime()));
+		tomorrowCount.setOrdersCountData(
+				DashboardUtils.getTomorrowOrdersCountData(deliveryStats, times.getFirstDueTimeTomorrow()));
 	}
 
 
@@ -192,6 +342,7 @@ public class DashboardView extends LitTemplate {
 		background.setInnerRadius("100%");
 		background.setOuterRadius("110%");
 		pane.setBackground(background);
+		draw(todayCountChart);
 	}
 
 	private void populateDeliveriesCharts(DashboardData data) {
@@ -203,20 +354,24 @@ public class DashboardView extends LitTemplate {
 
 		yearConf.setTitle("Deliveries in " + today.getYear());
 		yearConf.getxAxis().setCategories(MONTH_LABELS);
-		yearConf.addSeries(new ListSeries("per Month", data.getDeliveriesThisYear()));
+		deliveriesThisYearSeries = new ListSeries("per Month", data.getDeliveriesThisYear());
+		yearConf.addSeries(deliveriesThisYearSeries);
 		yearConf.getChart().setStyledMode(true);
 
 		// init the 'Deliveries in [this month]' chart
 		Configuration monthConf = deliveriesThisMonthChart.getConfiguration();
 		configureColumnChart(monthConf);
 
-		List<Number> deliveriesThisMonth = data.getDeliveriesThisMonth();
-		String[] deliveriesThisMonthCategories = IntStream.rangeClosed(1, deliveriesThisMonth.size())
+		Number[] deliveriesThisMonth = data.getDeliveriesThisMonth();
+		String[] deliveriesThisMonthCategories = IntStream.rangeClosed(1, deliveriesThisMonth.length)
 				.mapToObj(String::valueOf).toArray(String[]::new);
 
 		monthConf.setTitle("Deliveries in " + FormattingUtils.getFullMonthName(today));
 		monthConf.getxAxis().setCategories(deliveriesThisMonthCategories);
-		monthConf.addSeries(new ListSeries("per Day", deliveriesThisMonth));
+		deliveriesThisMonthSeries = new ListSeries("per Day", deliveriesThisMonth);
+		monthConf.addSeries(deliveriesThisMonthSeries);
+		draw(deliveriesThisYearChart);
+		draw(deliveriesThisMonthChart);
 	}
 
 	private void configureColumnChart(Configuration conf) {
@@ -247,8 +402,11 @@ public class DashboardView extends LitTemplate {
 		conf.getyAxis().getTitle().setText(null);
 
 		int year = Year.now().getValue();
-		for (int i = 0; i < 3; i++) {
-			conf.addSeries(new ListSeries(Integer.toString(year - i), data.getSalesPerMonth(i)));
+		for (int i = 0; i < DashboardData.SALES_YEARS; i++) {
+			ListSeries series = new ListSeries(Integer.toString(year - i), data.getSalesPerMonth(i));
+			salesPerMonthSeries.add(series);
+			conf.addSeries(series);
 		}
+		draw(yearlySalesGraph);
 	}
 }
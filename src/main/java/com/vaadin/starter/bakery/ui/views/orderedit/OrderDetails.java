@@ -3,7 +3,11 @@
  */
 package com.vaadin.starter.bakery.ui.views.orderedit;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -15,11 +19,15 @@ import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.littemplate.LitTemplate;
 import com.vaadin.flow.component.template.Id;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.component.virtuallist.VirtualList;
+import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.renderer.LitRenderer;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.shared.Registration;
+import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.events.CancelEvent;
 import com.vaadin.starter.bakery.ui.events.SaveEvent;
 import com.vaadin.starter.bakery.ui.utils.converters.CurrencyFormatter;
@@ -35,12 +43,27 @@ import elemental.json.JsonObject;
 
 /**
  * The component displaying a full (read-only) summary of an order, and a comment
- * field to add comments.
+ * field to add comments. The history of the order is shown newest first, and
+ * older entries are read as the history is scrolled.
  */
 @Tag("order-details")
 @JsModule("./src/views/orderedit/order-details.js")
+@SpringComponent
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class OrderDetails extends LitTemplate {
 
+	private static final int VISIBLE_HISTORY_ITEMS = 5;
+	private static final double HISTORY_ITEM_HEIGHT_EM = 3.5;
+
+	// The history is not loaded with the order, it is read by the history list
+	@JsonIgnoreProperties("history")
+	private interface OrderWithoutHistory {
+	}
+
+	private final OrderService orderService;
+
+	private final VirtualList<HistoryItem> historyList = new VirtualList<>();
+
 	private Order order;
 
 	@Id("back")
@@ -69,7 +92,23 @@ public class OrderDetails extends LitTemplate {
 
 	private boolean isDirty;
 
-	public OrderDetails() {
+	@Autowired
+	public OrderDetails(OrderService orderService) {
+		this.orderService = orderService;
+		historyList.setRenderer(LitRenderer.<HistoryItem>of(
+				"<div class=\"history-line\">"
+				+ "<span class=\"bold\">${item.createdBy}</span> "
+				+ "<span class=\"secondary\">${item.formattedTimestamp}</span> "
+				+ "<order-status-badge .status=\"${item.newState}\" small></order-status-badge>"
+				+ "</div>"
+				+ "<div class=\"comment\">${item.message}</div>")
+				.withProperty("createdBy", historyItem -> historyItem.getCreatedBy().getFirstName())
+				.withProperty("formattedTimestamp",
+						historyItem -> new LocalDateTimeConverter().encode(historyItem.getTimestamp()))
+				.withProperty("newState", HistoryItem::getNewState)
+				.withProperty("message", HistoryItem::getMessage));
+		history.appendChild(historyList.getElement());
+
 		sendComment.addClickListener(e -> {
 			String message = commentField.getValue();
 			message = message == null ? "" : message.trim();
@@ -96,31 +135,39 @@ public class OrderDetails extends LitTemplate {
 
 		JsonArray orderItems = item.getArray("items");
 		for (int i = 0; i < orderItems.length(); i++) {
+			// The price the item was ordered at, which the total is summed from
 			JsonObject itemProduct = orderItems.getObject(i).getObject("product");
-			Product product = order.getItems().get(i).getProduct();
-			itemProduct.put("formattedPrice", new CurrencyFormatter().encode(product.getPrice()));
+			itemProduct.put("formattedPrice", new CurrencyFormatter().encode(order.getItems().get(i).getPrice()));
 		}
 
-		JsonArray orderHistory = item.getArray("history");
-		for (int i = 0; i < orderHistory.length(); i++) {
-			JsonObject itemHistory = orderHistory.getObject(i);
-			HistoryItem historyItem = order.getHistory().get(i);
-			itemHistory.put("formattedTimestamp", new LocalDateTimeConverter().encode(historyItem.getTimestamp()));
-		}
-		
 		getElement().setPropertyJson("item", item);
 
+		if (review || order.getId() == null) {
+			historyList.setItems();
+		} else {
+			displayHistory(order.getId());
+		}
+
 		if (!review) {
 			commentField.clear();
 		}
 		this.isDirty = review;
 	}
 
+	private void displayHistory(Long orderId) {
+		int count = orderService.countHistory(orderId);
+		historyList.setHeight(Math.min(count, VISIBLE_HISTORY_ITEMS) * HISTORY_ITEM_HEIGHT_EM + "em");
+		historyList.setDataProvider(DataProvider.fromCallbacks(
+				query -> orderService.findHistory(orderId, query.getOffset(), query.getLimit()).stream(),
+				query -> count));
+	}
+
 	// Workaround https://github.com/vaadin/flow/issues/13317
 	private JsonObject beanToJson(Object bean) {
 		try {
 			ObjectMapper objectMapper = new ObjectMapper();
 			objectMapper.registerModule(new JavaTimeModule());
+			objectMapper.addMixIn(Order.class, OrderWithoutHistory.class);
 			return Json.parse(objectMapper.writeValueAsString(bean));
 		} catch (JsonProcessingException e) {
 			e.printStackTrace();
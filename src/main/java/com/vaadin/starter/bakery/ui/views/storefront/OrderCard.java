@@ -6,13 +6,16 @@ import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.SHORT_DAY_FORMA
 import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEKDAY_FULLNAME_FORMATTER;
 import static com.vaadin.starter.bakery.ui.utils.FormattingUtils.WEEK_OF_YEAR_FIELD;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
 
 import com.vaadin.flow.data.renderer.LitRenderer;
-import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
-import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 /**
  * Help class to get ready to use LitRenderer for displaying order card list on the Storefront and Dashboard grids.
@@ -22,10 +25,16 @@ import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
  * to visually separate orders into groups. Technically all order cards are
  * equivalent, but those that do have the header visible create a visual group
  * separation.
+ * <p>
+ * Cards are immutable and shared by all UIs: they are cached by order id,
+ * version and the current date. The renderer receives them as plain JSON,
+ * built without bean introspection.
  */
-public class OrderCard {
+public class OrderCard implements Serializable {
 
-	public static LitRenderer<Order> getTemplate() {
+	private static final OrderCardCache cache = new OrderCardCache(10000);
+
+	public static LitRenderer<OrderBrief> getTemplate() {
 		return LitRenderer.of(
 				  "<order-card"
 				+ "  .header='${item.header}'"
@@ -33,45 +42,71 @@ public class OrderCard {
 				+ "  @card-click='${cardClick}'>"
 				+ "</order-card>");
 	}
-	
-	public static OrderCard create(OrderSummary order) {
-		return new OrderCard(order);
+
+	public static OrderCard create(OrderBrief order) {
+		return cache.get(order, LocalDate.now());
 	}
 
-	private boolean recent, inWeek;
+	/**
+	 * Returns the JSON of the card of the given order, to be used as the
+	 * <code>orderCard</code> property of the template.
+	 */
+	public static JsonObject toJson(OrderBrief order) {
+		return create(order).toJson();
+	}
+
+	private final OrderBrief order;
+	private final String place;
+	private final String time;
+	private final String shortDay;
+	private final String secondaryTime;
+	private final String month;
+	private final String fullDay;
+
+	public OrderCard(OrderBrief order) {
+		this(order, LocalDate.now());
+	}
 
-	private final OrderSummary order;
-	
-	public OrderCard(OrderSummary order) {
+	OrderCard(OrderBrief order, LocalDate now) {
 		this.order = order;
-		LocalDate now = LocalDate.now();
 		LocalDate date = order.getDueDate();
-		recent = date.equals(now) || date.equals(now.minusDays(1));
-		inWeek = !recent && now.getYear() == date.getYear() && now.get(WEEK_OF_YEAR_FIELD) == date.get(WEEK_OF_YEAR_FIELD);
+		boolean recent = date.equals(now) || date.equals(now.minusDays(1));
+		boolean inWeek = !recent && now.getYear() == date.getYear()
+				&& now.get(WEEK_OF_YEAR_FIELD) == date.get(WEEK_OF_YEAR_FIELD);
+		place = recent || inWeek ? order.getPickupLocationName() : null;
+		time = recent ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		shortDay = inWeek ? SHORT_DAY_FORMATTER.format(date) : null;
+		secondaryTime = inWeek ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		month = recent || inWeek ? null : MONTH_AND_DAY_FORMATTER.format(date);
+		fullDay = recent || inWeek ? null : WEEKDAY_FULLNAME_FORMATTER.format(date);
+	}
+
+	OrderBrief getOrder() {
+		return order;
 	}
 
 	public String getPlace() {
-		return recent || inWeek ? order.getPickupLocation().getName() : null;
+		return place;
 	}
 
 	public String getTime() {
-		return recent ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		return time;
 	}
 
 	public String getShortDay() {
-		return inWeek ? SHORT_DAY_FORMATTER.format(order.getDueDate()) : null;
+		return shortDay;
 	}
 
 	public String getSecondaryTime() {
-		return inWeek ? HOUR_FORMATTER.format(order.getDueTime()) : null;
+		return secondaryTime;
 	}
 
 	public String getMonth() {
-		return recent || inWeek ? null : MONTH_AND_DAY_FORMATTER.format(order.getDueDate());
+		return month;
 	}
 
 	public String getFullDay() {
-		return recent || inWeek ? null : WEEKDAY_FULLNAME_FORMATTER.format(order.getDueDate());
+		return fullDay;
 	}
 
 	public String getState() {
@@ -79,10 +114,39 @@ public class OrderCard {
 	}
 
 	public String getFullName() {
-		return order.getCustomer().getFullName();
+		return order.getCustomerFullName();
 	}
 
-	public List<OrderItem> getItems() {
+	public List<OrderBrief.Item> getItems() {
 		return order.getItems();
 	}
+
+	public JsonObject toJson() {
+		JsonObject json = Json.createObject();
+		put(json, "place", place);
+		put(json, "time", time);
+		put(json, "shortDay", shortDay);
+		put(json, "secondaryTime", secondaryTime);
+		put(json, "month", month);
+		put(json, "fullDay", fullDay);
+		put(json, "state", getState());
+		put(json, "fullName", getFullName());
+		JsonArray items = Json.createArray();
+		for (OrderBrief.Item item : order.getItems()) {
+			JsonObject itemJson = Json.createObject();
+			itemJson.put("quantity", item.getQuantity());
+			put(itemJson, "productName", item.getProductName());
+			items.set(items.length(), itemJson);
+		}
+		json.put("items", items);
+		return json;
+	}
+
+	private static void put(JsonObject json, String key, String value) {
+		if (value == null) {
+			json.put(key, Json.createNull());
+		} else {
+			json.put(key, value);
+		}
+	}
 }
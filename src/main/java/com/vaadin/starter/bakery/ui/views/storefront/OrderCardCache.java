@@ -0,0 +1,75 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
+
+/**
+ * Least recently used cache of {@link OrderCard}s shared by all UIs, keyed by
+ * order id, order version and the date the card was made on.
+ * <p>
+ * The order version does not change when only the customer or the items of an
+ * order are edited, so a cached card is only used when it was made of an equal
+ * {@link OrderBrief}.
+ */
+class OrderCardCache {
+
+	private static final class Key {
+		private final Long id;
+		private final int version;
+		private final LocalDate today;
+
+		Key(Long id, int version, LocalDate today) {
+			this.id = id;
+			this.version = version;
+			this.today = today;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			Key that = (Key) o;
+			return version == that.version && Objects.equals(id, that.id) && Objects.equals(today, that.today);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, version, today);
+		}
+	}
+
+	private final Map<Key, OrderCard> cards;
+
+	OrderCardCache(int maxSize) {
+		cards = new LinkedHashMap<Key, OrderCard>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, OrderCard> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	OrderCard get(OrderBrief order, LocalDate today) {
+		Key key = new Key(order.getId(), order.getVersion(), today);
+		synchronized (cards) {
+			OrderCard card = cards.get(key);
+			if (card != null && card.getOrder().equals(order)) {
+				return card;
+			}
+		}
+		// Made outside of the lock, two UIs may make the same card at once
+		OrderCard card = new OrderCard(order, today);
+		synchronized (cards) {
+			cards.put(key, card);
+		}
+		return card;
+	}
+}
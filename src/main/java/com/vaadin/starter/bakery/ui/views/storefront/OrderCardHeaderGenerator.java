@@ -4,49 +4,47 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.Optional;
 
-import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrderCardHeader;
 
+/**
+ * Finds the orders that start the groups of the storefront list. The first
+ * order of every group is looked up from the backend when the groups are
+ * reset or refreshed, so the headers do not depend on the order in which the
+ * grid reads its pages.
+ */
 public class OrderCardHeaderGenerator {
 
-	private class HeaderWrapper {
-		private Predicate<LocalDate> matcher;
-
-		private OrderCardHeader header;
+	/**
+	 * Finds the id of the first order due after the first date and before the
+	 * second one, either of which can be <code>null</code>.
+	 */
+	@FunctionalInterface
+	public interface FirstOrderFinder {
+		Optional<Long> find(LocalDate dueAfter, LocalDate dueBefore);
+	}
 
-		private Long selected;
+	private static class HeaderRange {
+		private final LocalDate from;
+		private final LocalDate to;
+		private final OrderCardHeader header;
 
-		public HeaderWrapper(Predicate<LocalDate> matcher, OrderCardHeader header) {
-			this.matcher = matcher;
+		// The first day is included, the last one is not
+		public HeaderRange(LocalDate from, LocalDate to, OrderCardHeader header) {
+			this.from = from;
+			this.to = to;
 			this.header = header;
 		}
-
-		public boolean matches(LocalDate date) {
-			return matcher.test(date);
-		}
-
-		public Long getSelected() {
-			return selected;
-		}
-
-		public void setSelected(Long selected) {
-			this.selected = selected;
-		}
-
-		public OrderCardHeader getHeader() {
-			return header;
-		}
 	}
 
 	private final DateTimeFormatter HEADER_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("EEE, MMM d");
 
 	private final Map<Long, OrderCardHeader> ordersWithHeaders = new HashMap<>();
-	private List<HeaderWrapper> headerChain = new ArrayList<>();
+	private List<HeaderRange> headerChain = new ArrayList<>();
+	private FirstOrderFinder finder = (dueAfter, dueBefore) -> Optional.empty();
 
 	private OrderCardHeader getRecentHeader() {
 		return new OrderCardHeader("Recent", "Before this week");
@@ -93,53 +91,50 @@ public class OrderCardHeaderGenerator {
 		return ordersWithHeaders.get(id);
 	}
 
-	public void resetHeaderChain(boolean showPrevious) {
+	/**
+	 * Sets the groups of the list and finds their first orders with the given
+	 * finder, which should apply the current filter of the list.
+	 */
+	public void resetHeaderChain(boolean showPrevious, FirstOrderFinder finder) {
 		this.headerChain = createHeaderChain(showPrevious);
-		ordersWithHeaders.clear();
+		this.finder = finder;
+		refresh();
 	}
 
-	public void ordersRead(List<Order> orders) {
-		Iterator<HeaderWrapper> headerIterator = headerChain.stream().filter(h -> h.getSelected() == null).iterator();
-		if (!headerIterator.hasNext()) {
-			return;
-		}
-
-		HeaderWrapper current = headerIterator.next();
-		for (Order order : orders) {
-			// If last selected, discard orders that match it.
-			if (current.getSelected() != null && current.matches(order.getDueDate())) {
-				continue;
-			}
-			while (current != null && !current.matches(order.getDueDate())) {
-				current = headerIterator.hasNext() ? headerIterator.next() : null;
-			}
-			if (current == null) {
-				break;
-			}
-			current.setSelected(order.getId());
-			ordersWithHeaders.put(order.getId(), current.getHeader());
+	/**
+	 * Finds the first orders of the groups again, after orders have changed,
+	 * and tells whether they are different orders than before.
+	 */
+	public boolean refresh() {
+		Map<Long, OrderCardHeader> previous = new HashMap<>(ordersWithHeaders);
+		ordersWithHeaders.clear();
+		for (HeaderRange range : headerChain) {
+			finder.find(range.from == null ? null : range.from.minusDays(1), range.to)
+					.ifPresent(id -> ordersWithHeaders.put(id, range.header));
 		}
+		return !previous.equals(ordersWithHeaders);
 	}
 
-	private List<HeaderWrapper> createHeaderChain(boolean showPrevious) {
-		List<HeaderWrapper> headerChain = new ArrayList<>();
+	private List<HeaderRange> createHeaderChain(boolean showPrevious) {
+		List<HeaderRange> headerChain = new ArrayList<>();
 		LocalDate today = LocalDate.now();
+		// Week starting on Monday
 		LocalDate startOfTheWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
 		if (showPrevious) {
 			LocalDate yesterday = today.minusDays(1);
-			// Week starting on Monday
-			headerChain.add(new HeaderWrapper(d -> d.isBefore(startOfTheWeek), this.getRecentHeader()));
+			// On Mondays yesterday has a group of its own
+			LocalDate recentEnd = startOfTheWeek.isBefore(yesterday) ? startOfTheWeek : yesterday;
+			headerChain.add(new HeaderRange(null, recentEnd, this.getRecentHeader()));
 			if (startOfTheWeek.isBefore(yesterday)) {
-				headerChain.add(new HeaderWrapper(d -> d.isBefore(yesterday) && !d.isAfter(startOfTheWeek),
-						this.getThisWeekBeforeYesterdayHeader()));
+				headerChain.add(new HeaderRange(startOfTheWeek, yesterday, this.getThisWeekBeforeYesterdayHeader()));
 			}
-			headerChain.add(new HeaderWrapper(yesterday::equals, this.getYesterdayHeader()));
+			headerChain.add(new HeaderRange(yesterday, today, this.getYesterdayHeader()));
 		}
 		LocalDate firstDayOfTheNextWeek = startOfTheWeek.plusDays(7);
-		headerChain.add(new HeaderWrapper(today::equals, getTodayHeader()));
-		headerChain.add(new HeaderWrapper(d -> d.isAfter(today) && d.isBefore(firstDayOfTheNextWeek),
+		headerChain.add(new HeaderRange(today, today.plusDays(1), getTodayHeader()));
+		headerChain.add(new HeaderRange(today.plusDays(1), firstDayOfTheNextWeek,
 				getThisWeekStartingTomorrow(showPrevious)));
-		headerChain.add(new HeaderWrapper(d -> !d.isBefore(firstDayOfTheNextWeek), getUpcomingHeader()));
+		headerChain.add(new HeaderRange(firstDayOfTheNextWeek, null, getUpcomingHeader()));
 		return headerChain;
 	}
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.vaadin.starter.bakery.ui.views.storefront;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import com.vaadin.flow.component.HasValue;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.starter.bakery.app.security.CurrentUser;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.crud.EntityPresenter;
@@ -41,13 +43,12 @@ public class OrderPresenter {
 		this.dataProvider = dataProvider;
 		this.currentUser = currentUser;
 		headersGenerator = new OrderCardHeaderGenerator();
-		headersGenerator.resetHeaderChain(false);
-		dataProvider.setPageObserver(p -> headersGenerator.ordersRead(p.getContent()));
 	}
 
 	void init(StorefrontView view) {
 		this.entityPresenter.setView(view);
 		this.view = view;
+		resetHeaders("", false);
 		view.getGrid().setDataProvider(dataProvider);
 		view.getOpenedOrderEditor().setCurrentUser(currentUser.getUser());
 		view.getOpenedOrderEditor().addCancelListener(e -> cancel());
@@ -64,10 +65,21 @@ public class OrderPresenter {
 	}
 
 	public void filterChanged(String filter, boolean showPrevious) {
-		headersGenerator.resetHeaderChain(showPrevious);
+		resetHeaders(filter, showPrevious);
+		// Search results are not counted, the grid grows as they are scrolled
+		if (filter.isEmpty()) {
+			view.getGrid().getLazyDataView().setItemCountFromDataProvider();
+		} else {
+			view.getGrid().getLazyDataView().setItemCountUnknown();
+		}
 		dataProvider.setFilter(new OrderFilter(filter, showPrevious));
 	}
 
+	private void resetHeaders(String filter, boolean showPrevious) {
+		headersGenerator.resetHeaderChain(showPrevious,
+				(dueAfter, dueBefore) -> orderService.findFirstMatchingDueBetween(Optional.of(filter), dueAfter, dueBefore));
+	}
+
 	void onNavigation(Long id, boolean edit) {
 		entityPresenter.loadEntity(id, e -> open(e, edit));
 	}
@@ -111,12 +123,20 @@ public class OrderPresenter {
 
 	void save() {
 		entityPresenter.save(e -> {
+			// The order may have become or ceased to be the first of its group,
+			// which changes the headers of other rows as well
+			boolean headersChanged = headersGenerator.refresh();
 			if (entityPresenter.isNew()) {
 				view.showCreatedNotification();
-				dataProvider.refreshAll();
+				// Reads the visible rows again, with their headers
+				dataProvider.refreshInserted(OrderBrief.of(e));
 			} else {
 				view.showUpdatedNotification();
-				dataProvider.refreshItem(e);
+				if (headersChanged) {
+					dataProvider.refreshAll();
+				} else {
+					dataProvider.refreshItem(OrderBrief.of(e));
+				}
 			}
 			close();
 		});
@@ -124,7 +144,12 @@ public class OrderPresenter {
 	}
 
 	void addComment(String comment) {
-		if (entityPresenter.executeUpdate(e -> orderService.addComment(currentUser.getUser(), e, comment))) {
+		if (entityPresenter.executeUpdate(e -> {
+			// Only the version of the order changes, the details read the
+			// history again when the order is reopened
+			e.setVersion(orderService.addComment(currentUser.getUser(), e, comment));
+			return e;
+		})) {
 			// You can only add comments when in view mode, so reopening in that state.
 			open(entityPresenter.getEntity(), false);
 		}
@@ -24,6 +24,7 @@ import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteAlias;
 import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.data.entity.util.EntityUtil;
 import com.vaadin.starter.bakery.ui.MainView;
@@ -50,7 +51,7 @@ public class StorefrontView extends LitTemplate
 	private SearchBar searchBar;
 
 	@Id("grid")
-	private Grid<Order> grid;
+	private Grid<OrderBrief> grid;
 
 	@Id("dialog")
 	private Dialog dialog;
@@ -59,14 +60,15 @@ public class StorefrontView extends LitTemplate
 
 	private final OrderEditor orderEditor;
 
-	private final OrderDetails orderDetails = new OrderDetails();
+	private final OrderDetails orderDetails;
 
 	private final OrderPresenter presenter;
 
 	@Autowired
-	public StorefrontView(OrderPresenter presenter, OrderEditor orderEditor) {
+	public StorefrontView(OrderPresenter presenter, OrderEditor orderEditor, OrderDetails orderDetails) {
 		this.presenter = presenter;
 		this.orderEditor = orderEditor;
+		this.orderDetails = orderDetails;
 
 		searchBar.setActionText("New order");
 		searchBar.setCheckboxText("Show past orders");
@@ -75,7 +77,7 @@ public class StorefrontView extends LitTemplate
 		grid.setSelectionMode(Grid.SelectionMode.NONE);
 
 		grid.addColumn(OrderCard.getTemplate()
-				.withProperty("orderCard", OrderCard::create)
+				.withProperty("orderCard", OrderCard::toJson)
 				.withProperty("header", order -> presenter.getHeaderByOrderId(order.getId()))
 				.withFunction("cardClick",
 						order -> UI.getCurrent().navigate(BakeryConst.PAGE_STOREFRONT + "/" + order.getId())));
@@ -144,7 +146,7 @@ public class StorefrontView extends LitTemplate
 		return orderDetails;
 	}
 
-	Grid<Order> getGrid() {
+	Grid<OrderBrief> getGrid() {
 		return grid;
 	}
 
@@ -0,0 +1,78 @@
+package com.vaadin.starter.bakery.backend.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DashboardDataTest {
+
+	@Test
+	public void missingEntriesAreNull() {
+		DashboardData data = new DashboardData.Builder(30).setDeliveriesThisMonth(2, 5)
+				.setDeliveriesThisYear(12, 7).setSalesPerMonth(2, 1, 900).build();
+
+		Number[] deliveriesThisMonth = data.getDeliveriesThisMonth();
+		Assertions.assertEquals(30, deliveriesThisMonth.length);
+		Assertions.assertNull(deliveriesThisMonth[0]);
+		Assertions.assertEquals(5L, deliveriesThisMonth[1]);
+		Assertions.assertEquals(7L, data.getDeliveriesThisYear()[11]);
+		Assertions.assertNull(data.getSalesPerMonth(0)[0]);
+		Assertions.assertEquals(900L, data.getSalesPerMonth(2)[0]);
+	}
+
+	@Test
+	public void snapshotRoundTrip() {
+		DashboardData data = new DashboardData.Builder(31)
+				.setDeliveryStats(new DeliveryStats(1, 2, 3, 4, 5))
+				.setDeliveriesThisMonth(1, 10).setDeliveriesThisMonth(31, 0)
+				.setDeliveriesThisYear(6, 120)
+				.setSalesPerMonth(0, 1, 1000).setSalesPerMonth(2, 12, 3000)
+				.addProductDeliveries(7, "Strawberry Bun", 42).addProductDeliveries(9, "Äpfelkuchen", 3).build();
+
+		byte[] snapshot = data.toBytes();
+		DashboardData copy = DashboardData.fromBytes(snapshot);
+
+		Assertions.assertEquals(data, copy);
+		Assertions.assertArrayEquals(snapshot, copy.toBytes());
+		Assertions.assertEquals(3, copy.getDeliveryStats().getDueTomorrow());
+		Assertions.assertEquals(0L, copy.getDeliveriesThisMonth()[30]);
+		Assertions.assertEquals("Äpfelkuchen", copy.getProductName(1));
+		Assertions.assertEquals(9, copy.getProductId(1));
+	}
+
+	@Test
+	public void serializedAsSnapshot() throws IOException, ClassNotFoundException {
+		DashboardData data = new DashboardData.Builder(30).setDeliveryStats(new DeliveryStats(1, 2, 3, 4, 5))
+				.setDeliveriesThisMonth(3, 8).addProductDeliveries(7, "Strawberry Bun", 42).build();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(data);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			DashboardData copy = (DashboardData) in.readObject();
+			Assertions.assertEquals(data, copy);
+			Assertions.assertEquals(data.hashCode(), copy.hashCode());
+		}
+	}
+
+	@Test
+	public void productNamesAreHashed() {
+		DashboardData bun = new DashboardData.Builder(30).addProductDeliveries(7, "Strawberry Bun", 42).build();
+		DashboardData cake = new DashboardData.Builder(30).addProductDeliveries(7, "Strawberry Cake", 42).build();
+		Assertions.assertNotEquals(bun, cake);
+		Assertions.assertNotEquals(bun.hashCode(), cake.hashCode());
+	}
+
+	@Test
+	public void unknownFormatIsRejected() {
+		byte[] snapshot = new DashboardData.Builder(28).build().toBytes();
+		snapshot[0] = 0;
+		Assertions.assertThrows(IllegalArgumentException.class, () -> DashboardData.fromBytes(snapshot));
+	}
+}
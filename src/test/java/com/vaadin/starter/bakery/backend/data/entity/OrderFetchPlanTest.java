@@ -0,0 +1,156 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.jpa.SpecHints;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+/**
+ * Checks the SQL statements that loading an order with each of its entity
+ * graphs runs, on an in-memory database mapped like the application's.
+ */
+public class OrderFetchPlanTest {
+
+	private static final List<String> statements = new ArrayList<>();
+	private static SessionFactory sessionFactory;
+	private static Long orderId;
+
+	@BeforeAll
+	public static void createOrder() {
+		Configuration configuration = new Configuration().addAnnotatedClass(Order.class)
+				.addAnnotatedClass(Customer.class).addAnnotatedClass(PickupLocation.class)
+				.addAnnotatedClass(OrderItem.class).addAnnotatedClass(Product.class)
+				.addAnnotatedClass(HistoryItem.class).addAnnotatedClass(User.class)
+				.setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:fetchplans;DB_CLOSE_DELAY=-1")
+				.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+				.setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "NONE")
+				.setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy());
+		configuration.setStatementInspector(sql -> {
+			statements.add(sql.toLowerCase(Locale.ROOT));
+			return sql;
+		});
+		sessionFactory = configuration.buildSessionFactory();
+
+		orderId = sessionFactory.fromTransaction(session -> {
+			User user = new User();
+			user.setEmail("baker@vaadin.com");
+			user.setPasswordHash("hash");
+			user.setFirstName("Malin");
+			user.setLastName("Castro");
+			user.setRole("baker");
+			session.persist(user);
+			PickupLocation pickupLocation = new PickupLocation();
+			pickupLocation.setName("Bakery");
+			session.persist(pickupLocation);
+			Order order = new Order(user);
+			order.setDueDate(LocalDate.of(2017, 11, 13));
+			order.setDueTime(LocalTime.NOON);
+			order.setPickupLocation(pickupLocation);
+			order.getCustomer().setFullName("Jack Johnson");
+			order.getCustomer().setPhoneNumber("+358 12 345 678");
+			for (String name : List.of("Strawberry Bun", "Blueberry Cheese Cake")) {
+				Product product = new Product();
+				product.setName(name);
+				product.setPrice(100);
+				session.persist(product);
+				OrderItem item = new OrderItem();
+				item.setProduct(product);
+				item.setQuantity(2);
+				order.getItems().add(item);
+			}
+			order.addHistoryItem(user, "Confirmed");
+			session.persist(order);
+			return order.getId();
+		});
+	}
+
+	@AfterAll
+	public static void close() {
+		sessionFactory.close();
+	}
+
+	@BeforeEach
+	public void clearStatements() {
+		statements.clear();
+	}
+
+	@Test
+	public void itemsAreLoadedOnlyWhenUsed() {
+		sessionFactory.inSession(session -> {
+			Order order = session.find(Order.class, orderId);
+			Assertions.assertEquals(1, statements.size());
+			Assertions.assertFalse(statements.get(0).contains("order_item"), statements.get(0));
+
+			Assertions.assertEquals(2, order.getItems().size());
+			Assertions.assertEquals(2, statements.size());
+		});
+	}
+
+	@Test
+	public void briefPlanLoadsCustomerAndPickupLocation() {
+		sessionFactory.inSession(session -> {
+			Order order = find(session, Order.ENTITY_GRAPTH_BRIEF);
+			Assertions.assertEquals("Jack Johnson", order.getCustomer().getFullName());
+			Assertions.assertEquals("Bakery", order.getPickupLocation().getName());
+			Assertions.assertEquals(1, statements.size());
+			Assertions.assertFalse(statements.get(0).contains("order_item"), statements.get(0));
+			Assertions.assertFalse(statements.get(0).contains("history_item"), statements.get(0));
+		});
+	}
+
+	@Test
+	public void fullPlanLoadsItemsInOneQueryWithoutHistory() {
+		sessionFactory.inSession(session -> {
+			Order order = find(session, Order.ENTITY_GRAPTH_FULL);
+			Assertions.assertEquals("Blueberry Cheese Cake", order.getItems().get(1).getProduct().getName());
+			Assertions.assertEquals(1, statements.size(), statements.toString());
+			Assertions.assertTrue(statements.get(0).contains("order_item"), statements.get(0));
+			Assertions.assertFalse(statements.get(0).contains("history_item"), statements.get(0));
+		});
+	}
+
+	@Test
+	public void historyAddedToStoredOrderDoesNotLoadHistory() {
+		sessionFactory.inSession(session -> {
+			User user = session.createQuery("FROM UserInfo", User.class).getSingleResult();
+			Order order = find(session, Order.ENTITY_GRAPTH_FULL);
+			statements.clear();
+
+			order.changeState(user, OrderState.CONFIRMED);
+			order.addHistoryItem(user, "Call before pickup");
+			Assertions.assertEquals(0, statements.size(), statements.toString());
+
+			List<HistoryItem> added = order.getAddedHistory();
+			Assertions.assertEquals(2, added.size());
+			Assertions.assertEquals(OrderState.CONFIRMED, added.get(0).getNewState());
+			Assertions.assertEquals("Call before pickup", added.get(1).getMessage());
+			Assertions.assertEquals(added, order.getAddedHistory());
+
+			order.addHistoryItem(user, "Picked up by a friend");
+			order.forgetAddedHistory(added);
+			Assertions.assertEquals(1, order.getAddedHistory().size());
+			Assertions.assertEquals("Picked up by a friend", order.getAddedHistory().get(0).getMessage());
+			Assertions.assertEquals(0, statements.size(), statements.toString());
+		});
+	}
+
+	private static Order find(Session session, String graph) {
+		return session.find(Order.class, orderId, Map.of(SpecHints.HINT_SPEC_LOAD_GRAPH, session.getEntityGraph(graph)));
+	}
+}
@@ -0,0 +1,112 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.starter.bakery.backend.data.DashboardData;
+
+public class DashboardDataCacheTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2017, 11, 13);
+
+	@Test
+	public void sameKeyIsLoadedOnce() {
+		DashboardDataCache cache = new DashboardDataCache();
+		AtomicInteger loads = new AtomicInteger();
+		DashboardDataCache.Key key = new DashboardDataCache.Key(11, 2017, TODAY, 0);
+
+		DashboardData first = cache.get(key, () -> load(loads));
+		DashboardData second = cache.get(new DashboardDataCache.Key(11, 2017, TODAY, 0), () -> load(loads));
+
+		Assertions.assertSame(first, second);
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void newVersionIsReloaded() {
+		DashboardDataCache cache = new DashboardDataCache();
+		AtomicInteger loads = new AtomicInteger();
+
+		DashboardData first = cache.get(new DashboardDataCache.Key(11, 2017, TODAY, 0), () -> load(loads));
+		DashboardData second = cache.get(new DashboardDataCache.Key(11, 2017, TODAY, 1), () -> load(loads));
+
+		Assertions.assertNotSame(first, second);
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void preparedEntryKeepsCurrentDay() {
+		DashboardDataCache cache = new DashboardDataCache();
+		AtomicInteger loads = new AtomicInteger();
+		DashboardDataCache.Key today = new DashboardDataCache.Key(11, 2017, TODAY, 0);
+		DashboardDataCache.Key tomorrow = new DashboardDataCache.Key(11, 2017, TODAY.plusDays(1), 0);
+
+		DashboardData current = cache.get(today, () -> load(loads));
+		DashboardData prepared = load(loads);
+		cache.put(tomorrow, prepared);
+
+		Assertions.assertSame(current, cache.get(today, () -> load(loads)));
+		Assertions.assertSame(prepared, cache.get(tomorrow, () -> load(loads)));
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void failedLoadIsNotCached() {
+		DashboardDataCache cache = new DashboardDataCache();
+		AtomicInteger loads = new AtomicInteger();
+		DashboardDataCache.Key key = new DashboardDataCache.Key(11, 2017, TODAY, 0);
+
+		Assertions.assertThrows(IllegalStateException.class, () -> cache.get(key, () -> {
+			throw new IllegalStateException();
+		}));
+		Assertions.assertNotNull(cache.get(key, () -> load(loads)));
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void concurrentMissesShareOneLoad() throws Exception {
+		DashboardDataCache cache = new DashboardDataCache();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		DashboardDataCache.Key key = new DashboardDataCache.Key(11, 2017, TODAY, 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<DashboardData>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> cache.get(key, () -> {
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return load(loads);
+				})));
+			}
+			Thread.sleep(100);
+			release.countDown();
+			DashboardData data = results.get(0).get(5, TimeUnit.SECONDS);
+			for (Future<DashboardData> result : results) {
+				Assertions.assertSame(data, result.get(5, TimeUnit.SECONDS));
+			}
+			Assertions.assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private DashboardData load(AtomicInteger loads) {
+		loads.incrementAndGet();
+		return new DashboardData.Builder(30).build();
+	}
+}
@@ -0,0 +1,106 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import jakarta.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.backend.data.entity.Customer;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.OrderRollup;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+
+/**
+ * An in-memory database mapped like the application's, with Spring Data
+ * repositories and Spring managed transactions but without an application
+ * context, for testing the services that use them.
+ */
+class InMemoryBackend implements AutoCloseable {
+
+	private final SessionFactory sessionFactory;
+	private final JpaTransactionManager transactionManager;
+	private final EntityManager entityManager;
+	private final JpaRepositoryFactory repositories;
+
+	InMemoryBackend(String name) {
+		sessionFactory = new Configuration().addAnnotatedClass(Order.class).addAnnotatedClass(Customer.class)
+				.addAnnotatedClass(PickupLocation.class).addAnnotatedClass(OrderItem.class)
+				.addAnnotatedClass(Product.class).addAnnotatedClass(HistoryItem.class).addAnnotatedClass(User.class)
+				.addAnnotatedClass(OrderRollup.class)
+				.setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+				.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+				.setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "NONE")
+				.setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy()).buildSessionFactory();
+		transactionManager = new JpaTransactionManager(sessionFactory);
+		transactionManager.setJpaDialect(new HibernateJpaDialect());
+		entityManager = SharedEntityManagerCreator.createSharedEntityManager(sessionFactory);
+		repositories = new JpaRepositoryFactory(entityManager);
+		// Translates exceptions to Spring's DataAccessException like the
+		// repositories of the application
+		repositories.addRepositoryProxyPostProcessor((factory, repositoryInformation) -> factory
+				.addAdvice(new PersistenceExceptionTranslationInterceptor(new HibernateJpaDialect())));
+	}
+
+	PlatformTransactionManager getTransactionManager() {
+		return transactionManager;
+	}
+
+	TransactionTemplate newTransaction() {
+		return new TransactionTemplate(transactionManager);
+	}
+
+	/**
+	 * The entity manager of the current transaction.
+	 */
+	EntityManager getEntityManager() {
+		return entityManager;
+	}
+
+	<T> T getRepository(Class<T> repositoryType) {
+		return repositories.getRepository(repositoryType);
+	}
+
+	User createUser() {
+		User user = new User();
+		user.setEmail("baker@vaadin.com");
+		user.setPasswordHash("hash");
+		user.setFirstName("Malin");
+		user.setLastName("Castro");
+		user.setRole("baker");
+		entityManager.persist(user);
+		return user;
+	}
+
+	PickupLocation createPickupLocation(String name) {
+		PickupLocation pickupLocation = new PickupLocation();
+		pickupLocation.setName(name);
+		entityManager.persist(pickupLocation);
+		return pickupLocation;
+	}
+
+	Product createProduct(String name, int price) {
+		Product product = new Product();
+		product.setName(name);
+		product.setPrice(price);
+		entityManager.persist(product);
+		return product;
+	}
+
+	@Override
+	public void close() {
+		sessionFactory.close();
+	}
+}
@@ -0,0 +1,238 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+import com.vaadin.starter.bakery.backend.repositories.OrderRollupRepository;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Dimension;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Measure;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Slice;
+
+/**
+ * Changes orders through {@link OrderRollupService#replace} and
+ * {@link OrderRollupService#remove} the way {@code OrderService} does, and
+ * checks that the rollup rows and the sales cube end up as a rebuild from the
+ * orders makes them, on an in-memory database mapped like the application's.
+ */
+public class OrderRollupServiceTest {
+
+	private static final LocalDate MONDAY = LocalDate.of(2017, 11, 13);
+	private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+	private InMemoryBackend backend;
+	private EntityManager entityManager;
+	private TransactionTemplate transaction;
+	private OrderRollupRepository orderRollupRepository;
+	private ProductRepository productRepository;
+	private SalesCube salesCube;
+	private OrderRollupService orderRollupService;
+
+	private User baker;
+	private PickupLocation store;
+	private PickupLocation bakery;
+	private Product bun;
+	private Product cake;
+	private Product tart;
+
+	@BeforeEach
+	public void createServices() {
+		backend = new InMemoryBackend("rollups");
+		entityManager = backend.getEntityManager();
+		transaction = backend.newTransaction();
+		orderRollupRepository = backend.getRepository(OrderRollupRepository.class);
+		productRepository = backend.getRepository(ProductRepository.class);
+		salesCube = new SalesCube();
+		orderRollupService = new OrderRollupService(orderRollupRepository,
+				backend.getRepository(OrderRepository.class), productRepository,
+				backend.getRepository(PickupLocationRepository.class), new OrderDataVersion(), salesCube,
+				backend.getTransactionManager());
+
+		transaction.executeWithoutResult(status -> {
+			baker = backend.createUser();
+			store = backend.createPickupLocation("Store");
+			bakery = backend.createPickupLocation("Bakery");
+			bun = backend.createProduct("Strawberry Bun", 150);
+			cake = backend.createProduct("Blueberry Cheese Cake", 2000);
+			tart = backend.createProduct("Raspberry Tart", 500);
+		});
+	}
+
+	@AfterEach
+	public void close() {
+		backend.close();
+	}
+
+	@Test
+	public void newOrdersAreAdded() {
+		create(MONDAY, OrderState.NEW, store, bun, 2, cake, 1);
+		create(MONDAY, OrderState.NEW, store, bun, 1);
+		create(TUESDAY, OrderState.CONFIRMED, bakery, cake, 3);
+
+		Assertions.assertEquals(List.of("2017-11-13 NEW Store -: 2/0/0",
+				"2017-11-13 NEW Store Blueberry Cheese Cake: 0/1/2000", "2017-11-13 NEW Store Strawberry Bun: 0/3/450",
+				"2017-11-14 CONFIRMED Bakery -: 1/0/0", "2017-11-14 CONFIRMED Bakery Blueberry Cheese Cake: 0/3/6000"),
+				rows());
+		assertAsRebuilt();
+	}
+
+	@Test
+	public void editedOrdersMoveBetweenRows() {
+		Long first = create(MONDAY, OrderState.NEW, store, bun, 2, cake, 1);
+		Long second = create(MONDAY, OrderState.NEW, store, bun, 1);
+
+		edit(first, order -> order.changeState(baker, OrderState.READY));
+		edit(second, order -> order.setDueDate(TUESDAY));
+		edit(second, order -> order.setPickupLocation(bakery));
+		edit(first, order -> {
+			order.getItems().get(0).setQuantity(5);
+			order.getItems().remove(1);
+			OrderItem item = new OrderItem();
+			item.setProduct(tart);
+			item.setQuantity(2);
+			order.getItems().add(item);
+		});
+
+		Assertions.assertEquals(List.of("2017-11-13 READY Store -: 1/0/0",
+				"2017-11-13 READY Store Raspberry Tart: 0/2/1000", "2017-11-13 READY Store Strawberry Bun: 0/5/750",
+				"2017-11-14 NEW Bakery -: 1/0/0", "2017-11-14 NEW Bakery Strawberry Bun: 0/1/150"), rows());
+		assertAsRebuilt();
+	}
+
+	@Test
+	public void salesStayAtThePricesOfTheItems() {
+		Long order = create(MONDAY, OrderState.NEW, store, cake, 2);
+		transaction.executeWithoutResult(status -> productRepository.findById(cake.getId()).get().setPrice(2500));
+
+		edit(order, o -> o.changeState(baker, OrderState.CONFIRMED));
+
+		Assertions.assertEquals(List.of("2017-11-13 CONFIRMED Store -: 1/0/0",
+				"2017-11-13 CONFIRMED Store Blueberry Cheese Cake: 0/2/4000"), rows());
+		assertAsRebuilt();
+	}
+
+	@Test
+	public void cancelledAndDeletedOrdersAreSubtracted() {
+		Long cancelled = create(MONDAY, OrderState.NEW, store, bun, 2);
+		Long deleted = create(MONDAY, OrderState.NEW, store, bun, 1, cake, 1);
+		create(MONDAY, OrderState.NEW, store, cake, 1);
+
+		edit(cancelled, order -> order.changeState(baker, OrderState.CANCELLED));
+		transaction.executeWithoutResult(status -> {
+			orderRollupService.remove(deleted);
+			entityManager.remove(entityManager.find(Order.class, deleted));
+		});
+
+		Assertions.assertEquals(List.of("2017-11-13 CANCELLED Store -: 1/0/0",
+				"2017-11-13 CANCELLED Store Strawberry Bun: 0/2/300", "2017-11-13 NEW Store -: 1/0/0",
+				"2017-11-13 NEW Store Blueberry Cheese Cake: 0/1/2000"), rows());
+		assertAsRebuilt();
+	}
+
+	@Test
+	public void rowsThatCannotBeCreatedFailTheSave() {
+		Product deleted = transaction.execute(status -> backend.createProduct("Salami Pastry", 300));
+		transaction.executeWithoutResult(status -> productRepository.deleteById(deleted.getId()));
+
+		Assertions.assertThrows(DataIntegrityViolationException.class,
+				() -> create(MONDAY, OrderState.NEW, store, deleted, 1));
+		Assertions.assertEquals(List.of(), rows());
+	}
+
+	@Test
+	public void savingAnUnchangedOrderChangesNothing() {
+		Long order = create(MONDAY, OrderState.NEW, store, bun, 2);
+		List<String> before = rows();
+
+		edit(order, o -> o.getCustomer().setDetails("Call before pickup"));
+
+		Assertions.assertEquals(before, rows());
+		assertAsRebuilt();
+	}
+
+	private Long create(LocalDate dueDate, OrderState state, PickupLocation pickupLocation, Object... items) {
+		return transaction.execute(status -> {
+			Order order = new Order(baker);
+			order.setDueDate(dueDate);
+			order.setDueTime(LocalTime.NOON);
+			order.setPickupLocation(pickupLocation);
+			order.getCustomer().setFullName("Jack Johnson");
+			order.getCustomer().setPhoneNumber("+358 12 345 678");
+			for (int i = 0; i < items.length; i += 2) {
+				OrderItem item = new OrderItem();
+				item.setProduct((Product) items[i]);
+				item.setQuantity((Integer) items[i + 1]);
+				order.getItems().add(item);
+			}
+			order.changeState(baker, state);
+			orderRollupService.replace(order);
+			entityManager.persist(order);
+			return order.getId();
+		});
+	}
+
+	private void edit(Long orderId, Consumer<Order> change) {
+		transaction.executeWithoutResult(status -> {
+			Order order = entityManager.find(Order.class, orderId);
+			change.accept(order);
+			orderRollupService.replace(order);
+		});
+	}
+
+	// The rows emptied by the changes are kept, a rebuild leaves them out
+	private List<String> rows() {
+		return transaction.execute(status -> orderRollupRepository.findAll().stream()
+				.filter(rollup -> !rollup.isEmpty())
+				.map(rollup -> rollup.getDueDate() + " " + rollup.getState() + " "
+						+ rollup.getPickupLocation().getName() + " "
+						+ (rollup.getProduct() == null ? "-" : rollup.getProduct().getName()) + ": "
+						+ rollup.getOrderCount() + "/" + rollup.getQuantity() + "/" + rollup.getSales())
+				.sorted(Comparator.naturalOrder()).collect(Collectors.toList()));
+	}
+
+	private List<String> cube() {
+		List<String> sums = new ArrayList<>();
+		for (OrderState state : OrderState.values()) {
+			for (Measure measure : Measure.values()) {
+				// Order counts are not split per product
+				for (Dimension groupBy : measure == Measure.ORDERS
+						? List.of(Dimension.DAY_OF_MONTH, Dimension.PICKUP_LOCATION)
+						: List.of(Dimension.DAY_OF_MONTH, Dimension.PRODUCT, Dimension.PICKUP_LOCATION)) {
+					salesCube.sum(measure, groupBy, Slice.all().inState(state), (group, value) -> sums
+							.add(state + " " + measure + " " + groupBy + " " + group + "=" + value));
+				}
+			}
+		}
+		return sums;
+	}
+
+	private void assertAsRebuilt() {
+		List<String> rows = rows();
+		List<String> cube = cube();
+		transaction.executeWithoutResult(status -> orderRollupService.rebuild());
+		Assertions.assertEquals(rows(), rows);
+		Assertions.assertEquals(cube(), cube);
+	}
+}
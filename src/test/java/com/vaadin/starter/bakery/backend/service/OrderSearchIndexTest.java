@@ -0,0 +1,164 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.ScrollPosition;
+
+public class OrderSearchIndexTest {
+
+	private static final LocalDate JAN_1 = LocalDate.of(2017, 1, 1);
+	private static final LocalDate JAN_2 = LocalDate.of(2017, 1, 2);
+	private static final LocalTime NOON = LocalTime.NOON;
+
+	@Test
+	public void matchesArePartsOfTheNameInDueOrder() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		put(index, 1, "Jack Johnson", JAN_2, NOON);
+		put(index, 2, "Ann Jackson", JAN_1, NOON);
+		put(index, 3, "Jackie Chan", JAN_1, NOON.minusHours(1));
+		put(index, 4, "Nina Simone", JAN_1, NOON);
+
+		Assertions.assertEquals(List.of(3L, 2L, 1L), find(index, "JACK", null));
+		Assertions.assertEquals(List.of(2L, 1L), find(index, "son", null));
+		Assertions.assertEquals(List.of(1L), find(index, "jack", JAN_1));
+		Assertions.assertEquals(List.of(2L, 4L), find(index, "n", null).subList(1, 3));
+		Assertions.assertEquals(List.of(), find(index, "jackson five", null));
+		Assertions.assertEquals(2, index.count("ja", JAN_1) + index.count("nina", null));
+	}
+
+	@Test
+	public void changedAndRemovedOrdersAreNotFound() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		for (long id = 0; id < 3000; id++) {
+			put(index, id, "Customer " + id, JAN_1, NOON);
+		}
+		put(index, 7, "Someone Else", JAN_1, NOON);
+		for (long id = 100; id < 3000; id++) {
+			index.remove(id);
+		}
+
+		Assertions.assertEquals(List.of(70L, 71L), find(index, "customer 7", null).subList(0, 2));
+		Assertions.assertEquals(List.of(7L), find(index, "else", null));
+		Assertions.assertEquals(List.of(99L), find(index, "customer 99", null));
+		Assertions.assertEquals(99, index.count("customer", null));
+	}
+
+	@Test
+	public void findContinuesFromThePosition() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		for (long id = 1; id <= 5; id++) {
+			put(index, id, "Customer", JAN_1, NOON);
+		}
+
+		Assertions.assertEquals(List.of(1L, 2L), index.find("cust", null, ScrollPosition.offset(), 2));
+		Assertions.assertEquals(List.of(3L, 4L), index.find("cust", null, ScrollPosition.offset(1), 2));
+		Assertions.assertEquals(List.of(4L, 5L), index.find("cust", null,
+				ScrollPosition.forward(Map.of("dueDate", JAN_1, "dueTime", NOON, "id", 3L)), 10));
+	}
+
+	@Test
+	public void shortTextsAreFoundInDueOrderFromThePosition() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		put(index, 1, "Jack Johnson", JAN_2, NOON);
+		put(index, 2, "Ann Jackson", JAN_1, NOON);
+		put(index, 3, "Nina Simone", JAN_1, NOON.minusHours(1));
+		put(index, 4, "Jackie Chan", JAN_1, NOON);
+		index.remove(4);
+
+		Assertions.assertEquals(List.of(3L, 2L), index.find("n", null, ScrollPosition.offset(), 2));
+		Assertions.assertEquals(List.of(2L, 1L), index.find("n", null, ScrollPosition.offset(0), 2));
+		Assertions.assertEquals(List.of(1L), index.find("n", null,
+				ScrollPosition.forward(Map.of("dueDate", JAN_1, "dueTime", NOON, "id", 2L)), 2));
+		Assertions.assertEquals(List.of(1L), index.find("ja", JAN_1, ScrollPosition.offset(), 2));
+		Assertions.assertEquals(Optional.of(2L), index.findFirst("ja", null, null));
+		Assertions.assertEquals(Optional.empty(), index.findFirst("ja", null, JAN_1));
+		Assertions.assertEquals(Optional.of(1L), index.findFirst("ja", JAN_1, null));
+	}
+
+	@Test
+	public void searchesAreReadInPages() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		for (long id = 5; id >= 1; id--) {
+			put(index, id, "Customer", JAN_1, NOON);
+		}
+		OrderSearchIndex.Matches matches = index.search("CUST", null);
+		index.remove(3);
+
+		Assertions.assertEquals(5, matches.size());
+		Assertions.assertEquals(List.of(1L, 2L), matches.find(ScrollPosition.offset(), 2));
+		Assertions.assertEquals(List.of(3L, 4L), matches.find(ScrollPosition.offset(1), 2));
+		Assertions.assertEquals(List.of(4L, 5L),
+				matches.find(ScrollPosition.forward(Map.of("dueDate", JAN_1, "dueTime", NOON, "id", 3L)), 10));
+	}
+
+	@Test
+	public void findFirstLooksBetweenTheDates() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		put(index, 1, "Jack Johnson", JAN_2, NOON);
+		put(index, 2, "Ann Jackson", JAN_2, NOON.minusHours(1));
+		put(index, 3, "Jackie Chan", JAN_1, NOON);
+
+		Assertions.assertEquals(Optional.of(3L), index.findFirst("jack", null, null));
+		Assertions.assertEquals(Optional.of(3L), index.findFirst("jack", null, JAN_2));
+		Assertions.assertEquals(Optional.of(2L), index.findFirst("jack", JAN_1, null));
+		Assertions.assertEquals(Optional.empty(), index.findFirst("jack", JAN_2, null));
+		Assertions.assertEquals(Optional.empty(), index.findFirst("jackie", JAN_1, null));
+	}
+
+	@Test
+	public void allFieldsAreSearchedSeparately() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		index.put(new OrderSearchIndex.Document(1, List.of("Jack Johnson", "+1-555-0100", "Bakery", "Ready",
+				"Strawberry Bun"), JAN_1, NOON));
+		index.put(new OrderSearchIndex.Document(2, List.of("Ann Jackson", "+1-555-0199", "Store", "New",
+				"Blueberry Cheese Cake", "Strawberry Cracker"), JAN_2, NOON));
+
+		Assertions.assertEquals(List.of(1L, 2L), find(index, "555-01", null));
+		Assertions.assertEquals(List.of(1L, 2L), find(index, "STRAWBERRY", null));
+		Assertions.assertEquals(List.of(2L), find(index, "cheese", null));
+		Assertions.assertEquals(List.of(1L), find(index, "ready", null));
+		Assertions.assertEquals(List.of(2L), find(index, "store", null));
+		Assertions.assertEquals(List.of(), find(index, "bakeryready", null));
+		Assertions.assertEquals(List.of(), find(index, "johnson+1", null));
+		Assertions.assertTrue(index.matches("Cheese", 2));
+		Assertions.assertFalse(index.matches("Cheese", 1));
+		Assertions.assertFalse(index.matches("Cheese", 3));
+	}
+
+	@Test
+	public void changesMadeDuringALoadAreKept() {
+		OrderSearchIndex index = new OrderSearchIndex();
+		put(index, 1, "Jack Johnson", JAN_1, NOON);
+		put(index, 2, "Ann Jackson", JAN_1, NOON);
+
+		// The documents read before the orders were changed
+		List<OrderSearchIndex.Document> documents = List.of(
+				new OrderSearchIndex.Document(1, List.of("Jack Johnson"), JAN_1, NOON),
+				new OrderSearchIndex.Document(2, List.of("Ann Jackson"), JAN_1, NOON));
+		index.load(() -> {
+			put(index, 1, "Jackie Chan", JAN_1, NOON);
+			index.remove(2);
+			put(index, 3, "Nina Simone", JAN_2, NOON);
+			return documents;
+		});
+
+		Assertions.assertEquals(List.of(1L), find(index, "jack", null));
+		Assertions.assertEquals(List.of(1L, 3L), find(index, "n", null));
+		Assertions.assertEquals(List.of(), find(index, "johnson", null));
+	}
+
+	private static void put(OrderSearchIndex index, long id, String customerFullName, LocalDate dueDate,
+			LocalTime dueTime) {
+		index.put(new OrderSearchIndex.Document(id, List.of(customerFullName), dueDate, dueTime));
+	}
+
+	private static List<Long> find(OrderSearchIndex index, String text, LocalDate dueAfter) {
+		return index.find(text, dueAfter, ScrollPosition.keyset(), Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,215 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.validation.Validation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.backend.data.OrderImport;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.HistoryItemRepository;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+import com.vaadin.starter.bakery.backend.repositories.OrderRollupRepository;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+
+/**
+ * Runs the order service on an in-memory database mapped like the
+ * application's. The transactions its annotations would start are started by
+ * the tests.
+ */
+public class OrderServiceTest {
+
+	private InMemoryBackend backend;
+	private TransactionTemplate transaction;
+	private OrderService orderService;
+	private OrderRepository orderRepository;
+	private ProductRepository productRepository;
+
+	private User baker;
+	private PickupLocation store;
+	private Product bun;
+
+	@BeforeEach
+	public void createServices() {
+		backend = new InMemoryBackend("orders");
+		transaction = backend.newTransaction();
+		OrderDataVersion orderDataVersion = new OrderDataVersion();
+		SalesCube salesCube = new SalesCube();
+		orderRepository = backend.getRepository(OrderRepository.class);
+		productRepository = backend.getRepository(ProductRepository.class);
+		PickupLocationRepository pickupLocationRepository = backend.getRepository(PickupLocationRepository.class);
+		OrderRollupService orderRollupService = new OrderRollupService(
+				backend.getRepository(OrderRollupRepository.class), orderRepository, productRepository,
+				pickupLocationRepository, orderDataVersion, salesCube, backend.getTransactionManager());
+		orderService = new OrderService(orderRepository, backend.getRepository(HistoryItemRepository.class),
+				orderRollupService, orderDataVersion, salesCube, new OrderSearchIndex(), productRepository,
+				pickupLocationRepository, Validation.buildDefaultValidatorFactory().getValidator(),
+				backend.getTransactionManager(), Runnable::run);
+
+		transaction.executeWithoutResult(status -> {
+			baker = backend.createUser();
+			store = backend.createPickupLocation("Store");
+			bun = backend.createProduct("Strawberry Bun", 150);
+		});
+	}
+
+	@AfterEach
+	public void close() {
+		backend.close();
+	}
+
+	@Test
+	public void commentsAreAppendedToTheHistory() {
+		Order order = transaction.execute(status -> orderService.saveOrder(newOrder()));
+
+		for (String comment : List.of("Call before pickup", "Gluten free", "Paid")) {
+			order.setVersion(transaction.execute(status -> orderService.addComment(baker, order, comment)));
+		}
+
+		Assertions.assertEquals(5, orderService.countHistory(order.getId()));
+		Assertions.assertEquals(List.of("Paid", "Gluten free", "Call before pickup", "Order CONFIRMED", "Order placed"),
+				messages(orderService.findHistory(order.getId(), 0, 10)));
+		Assertions.assertEquals(List.of("Call before pickup", "Order CONFIRMED"),
+				messages(orderService.findHistory(order.getId(), 2, 2)));
+		Assertions.assertEquals(order.getVersion(), orderService.load(order.getId()).getVersion());
+	}
+
+	@Test
+	public void commentsOnAChangedOrderFail() {
+		Order order = transaction.execute(status -> orderService.saveOrder(newOrder()));
+		Order stale = orderService.load(order.getId());
+		transaction.executeWithoutResult(status -> orderService.addComment(baker, order, "Call before pickup"));
+
+		Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+				() -> transaction.executeWithoutResult(status -> orderService.addComment(baker, stale, "Paid")));
+		Assertions.assertEquals(List.of("Call before pickup", "Order CONFIRMED", "Order placed"),
+				messages(orderService.findHistory(order.getId(), 0, 10)));
+	}
+
+	@Test
+	public void importsAreWrittenInChunks() {
+		Progress progress = new Progress();
+
+		long imported = orderService.importOrders(baker,
+				Stream.generate(() -> record("Jack Johnson", "+358 12 345 678", bun.getId())).limit(5), 2, progress);
+
+		Assertions.assertEquals(5, imported);
+		Assertions.assertEquals(5, orderRepository.count());
+		Assertions.assertEquals(List.of("2/2/0", "4/4/0", "5/5/0"), progress.reports);
+		Assertions.assertEquals(List.of(), progress.failures);
+	}
+
+	@Test
+	public void invalidRecordsAreCountedAndReported() {
+		Progress progress = new Progress();
+
+		long imported = orderService.importOrders(baker,
+				Stream.of(record("Jack Johnson", "+358 12 345 678", bun.getId()),
+						record("", "+358 12 345 678", bun.getId()),
+						record("Jack Johnson", "+358 12 345 678", bun.getId()),
+						record("Jack Johnson", "+358 12 345 678", 999L), record("Jack Johnson", "abc", bun.getId())),
+				2, progress);
+
+		Assertions.assertEquals(2, imported);
+		Assertions.assertEquals(2, orderRepository.count());
+		// The last chunk is empty, the invalid records after the second order
+		// are reported at the end
+		Assertions.assertEquals(List.of("3/2/1", "5/2/3"), progress.reports);
+		Assertions.assertEquals(List.of(2L, 4L, 5L),
+				progress.failures.stream().map(failure -> failure.recordNumber).collect(Collectors.toList()));
+		Assertions.assertTrue(progress.failures.get(1).error.contains("Unknown product 999"),
+				progress.failures.get(1).error);
+	}
+
+	@Test
+	public void failedChunksAreRetriedPerRecord() {
+		Product deleted = transaction.execute(status -> backend.createProduct("Salami Pastry", 300));
+		Progress progress = new Progress();
+
+		// The product is deleted after its order has been validated, so only
+		// writing the chunk fails
+		long imported = orderService.importOrders(baker,
+				Stream.of(record("Jack Johnson", "+358 12 345 678", bun.getId()),
+						record("Jack Johnson", "+358 12 345 678", deleted.getId()),
+						record("Jack Johnson", "+358 12 345 678", bun.getId())).peek(record -> {
+							if (record.getItems().get(0).getProductId().equals(deleted.getId())) {
+								transaction.executeWithoutResult(
+										status -> productRepository.deleteById(deleted.getId()));
+							}
+						}),
+				3, progress);
+
+		Assertions.assertEquals(2, imported);
+		Assertions.assertEquals(2, orderRepository.count());
+		Assertions.assertEquals(List.of("3/2/1"), progress.reports);
+		Assertions.assertEquals(1, progress.failures.size());
+		Assertions.assertEquals(2, progress.failures.get(0).recordNumber);
+	}
+
+	private OrderImport record(String fullName, String phoneNumber, Long productId) {
+		return new OrderImport(LocalDate.of(2017, 11, 13), LocalTime.NOON, store.getId(), OrderState.NEW, fullName,
+				phoneNumber, null, List.of(new OrderImport.Item(productId, 2, null)));
+	}
+
+	private static class Progress implements OrderService.ImportListener {
+		private final List<String> reports = new ArrayList<>();
+		private final List<Failure> failures = new ArrayList<>();
+
+		@Override
+		public void progress(long read, long imported, long failed) {
+			reports.add(read + "/" + imported + "/" + failed);
+		}
+
+		@Override
+		public void failed(long recordNumber, OrderImport record, String error) {
+			failures.add(new Failure(recordNumber, error));
+		}
+	}
+
+	private static class Failure {
+		private final long recordNumber;
+		private final String error;
+
+		Failure(long recordNumber, String error) {
+			this.recordNumber = recordNumber;
+			this.error = error;
+		}
+	}
+
+	private Order newOrder() {
+		Order order = new Order(baker);
+		order.setDueDate(LocalDate.of(2017, 11, 13));
+		order.setDueTime(LocalTime.NOON);
+		order.setPickupLocation(store);
+		order.getCustomer().setFullName("Jack Johnson");
+		order.getCustomer().setPhoneNumber("+358 12 345 678");
+		OrderItem item = new OrderItem();
+		item.setProduct(bun);
+		item.setQuantity(2);
+		order.getItems().add(item);
+		order.changeState(baker, OrderState.CONFIRMED);
+		return order;
+	}
+
+	private static List<String> messages(List<HistoryItem> history) {
+		return history.stream().map(HistoryItem::getMessage).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,99 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Dimension;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Measure;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Slice;
+
+public class SalesCubeTest {
+
+	private static final LocalDate JAN_1 = LocalDate.of(2017, 1, 1);
+	private static final LocalDate JAN_2 = LocalDate.of(2017, 1, 2);
+	private static final LocalDate FEB_1 = LocalDate.of(2017, 2, 1);
+	private static final Slice YEAR_2017 = Slice.between(JAN_1, LocalDate.of(2018, 1, 1));
+
+	private static final long STORE = 1;
+	private static final long BAKERY = 2;
+	private static final long CAKE = 10;
+	private static final long BUN = 5;
+
+	@Test
+	public void sumsAreGroupedInAscendingOrder() {
+		SalesCube cube = new SalesCube();
+		addOrder(cube, JAN_1, OrderState.DELIVERED, STORE, CAKE, 2, 800);
+		addOrder(cube, JAN_2, OrderState.DELIVERED, BAKERY, BUN, 3, 900);
+		addOrder(cube, FEB_1, OrderState.DELIVERED, STORE, BUN, 1, 300);
+		addOrder(cube, FEB_1, OrderState.NEW, STORE, CAKE, 1, 400);
+
+		Assertions.assertEquals(List.of("1=2", "2=1"),
+				sum(cube, Measure.ORDERS, Dimension.MONTH, YEAR_2017.inState(OrderState.DELIVERED)));
+		Assertions.assertEquals(List.of("1=1", "2=1"), sum(cube, Measure.ORDERS, Dimension.DAY_OF_MONTH,
+				Slice.between(JAN_1, FEB_1).inState(OrderState.DELIVERED)));
+		Assertions.assertEquals(List.of("5=4", "10=3"), sum(cube, Measure.QUANTITY, Dimension.PRODUCT, YEAR_2017));
+		Assertions.assertEquals(List.of("1=1500", "2=900"),
+				sum(cube, Measure.SALES, Dimension.PICKUP_LOCATION, YEAR_2017));
+		Assertions.assertEquals(List.of("2017=1200"),
+				sum(cube, Measure.SALES, Dimension.YEAR, YEAR_2017.forProduct(BUN)));
+		Assertions.assertEquals(1, cube.sum(Measure.ORDERS, Slice.all().inState(OrderState.NEW)));
+		Assertions.assertEquals(0, cube.sum(Measure.SALES, YEAR_2017.forPickupLocation(42)));
+	}
+
+	@Test
+	public void emptiedCellsAreNotReported() {
+		SalesCube cube = new SalesCube();
+		addOrder(cube, JAN_1, OrderState.NEW, STORE, CAKE, 2, 800);
+		addOrder(cube, JAN_1, OrderState.NEW, STORE, CAKE, -2, -800);
+		addOrder(cube, JAN_2, OrderState.NEW, STORE, CAKE, 1, 400);
+
+		Assertions.assertEquals(List.of("2=1"), sum(cube, Measure.ORDERS, Dimension.DAY_OF_MONTH, YEAR_2017));
+		Assertions.assertEquals(List.of("10=1"), sum(cube, Measure.QUANTITY, Dimension.PRODUCT, YEAR_2017));
+	}
+
+	@Test
+	public void loadReplacesContent() {
+		SalesCube cube = new SalesCube();
+		addOrder(cube, JAN_1, OrderState.NEW, STORE, CAKE, 2, 800);
+		cube.load(Collections.emptyList());
+		Assertions.assertEquals(0, cube.sum(Measure.ORDERS, Slice.all()));
+
+		addOrder(cube, JAN_2, OrderState.NEW, BAKERY, BUN, 1, 300);
+		Assertions.assertEquals(List.of("2=300"), sum(cube, Measure.SALES, Dimension.PICKUP_LOCATION, YEAR_2017));
+	}
+
+	@Test
+	public void productsFitInTheCellKey() {
+		SalesCube cube = new SalesCube();
+		addOrder(cube, JAN_1, OrderState.NEW, STORE, CAKE, 1, 400);
+		cube.add(JAN_1, OrderState.NEW, BAKERY, null, 1, 0, 0);
+		for (long product = CAKE + 1; product < CAKE + (1 << 14) - 1; product++) {
+			cube.add(JAN_1, OrderState.NEW, STORE, product, 0, 1, 0);
+		}
+
+		// One more product would share its cell with the orders of the bakery
+		Assertions.assertThrows(IllegalStateException.class,
+				() -> cube.add(JAN_1, OrderState.NEW, STORE, 0L, 0, 1, 0));
+		Assertions.assertEquals(List.of("1=1", "2=1"),
+				sum(cube, Measure.ORDERS, Dimension.PICKUP_LOCATION, YEAR_2017));
+		Assertions.assertEquals((1 << 14) - 1, cube.sum(Measure.QUANTITY, YEAR_2017));
+	}
+
+	private void addOrder(SalesCube cube, LocalDate dueDate, OrderState state, long location, long product,
+			long quantity, long sales) {
+		cube.add(dueDate, state, location, null, Long.signum(quantity), 0, 0);
+		cube.add(dueDate, state, location, product, 0, quantity, sales);
+	}
+
+	private List<String> sum(SalesCube cube, Measure measure, Dimension groupBy, Slice slice) {
+		List<String> groups = new ArrayList<>();
+		cube.sum(measure, groupBy, slice, (group, value) -> groups.add(group + "=" + value));
+		return groups;
+	}
+}
@@ -0,0 +1,68 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SearchResultCacheTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2017, 11, 13);
+
+	@Test
+	public void sameSearchIsRunOnceIgnoringCase() {
+		SearchResultCache cache = new SearchResultCache(10);
+		AtomicInteger searches = new AtomicInteger();
+
+		OrderSearchIndex.Matches first = cache.matches(SearchResultCache.Key.matches("Jack", TODAY, 0),
+				() -> search(searches, 2));
+		OrderSearchIndex.Matches second = cache.matches(SearchResultCache.Key.matches("jack", TODAY, 0),
+				() -> search(searches, 2));
+		cache.matches(SearchResultCache.Key.matches("jack", null, 0), () -> search(searches, 2));
+
+		Assertions.assertSame(first, second);
+		Assertions.assertEquals(2, searches.get());
+	}
+
+	@Test
+	public void leastRecentlyUsedMatchesAreDroppedToKeepTheSize() {
+		SearchResultCache cache = new SearchResultCache(10);
+		AtomicInteger searches = new AtomicInteger();
+
+		cache.matches(SearchResultCache.Key.matches("jack", null, 0), () -> search(searches, 4));
+		cache.matches(SearchResultCache.Key.matches("ann", null, 0), () -> search(searches, 3));
+		cache.matches(SearchResultCache.Key.matches("jack", null, 0), () -> search(searches, 4));
+		// Nina does not fit next to Jack and Ann, so Ann is dropped
+		cache.matches(SearchResultCache.Key.matches("nina", null, 0), () -> search(searches, 3));
+		cache.matches(SearchResultCache.Key.matches("jack", null, 0), () -> search(searches, 4));
+		cache.matches(SearchResultCache.Key.matches("ann", null, 0), () -> search(searches, 3));
+
+		Assertions.assertEquals(4, searches.get());
+	}
+
+	@Test
+	public void newVersionSearchesAgain() {
+		SearchResultCache cache = new SearchResultCache(10);
+		AtomicInteger counts = new AtomicInteger();
+
+		Assertions.assertEquals(1, cache.count(SearchResultCache.Key.count("jack", null, 0), counts::incrementAndGet));
+		Assertions.assertEquals(1, cache.count(SearchResultCache.Key.count("jack", null, 0), counts::incrementAndGet));
+		Assertions.assertEquals(2, cache.count(SearchResultCache.Key.count("jack", null, 1), counts::incrementAndGet));
+		// A search that started before the change is not stored
+		Assertions.assertEquals(3, cache.count(SearchResultCache.Key.count("ann", null, 0), counts::incrementAndGet));
+		Assertions.assertEquals(4, cache.count(SearchResultCache.Key.count("ann", null, 0), counts::incrementAndGet));
+		Assertions.assertEquals(2, cache.count(SearchResultCache.Key.count("jack", null, 1), counts::incrementAndGet));
+	}
+
+	private static OrderSearchIndex.Matches search(AtomicInteger searches, int orders) {
+		searches.incrementAndGet();
+		OrderSearchIndex index = new OrderSearchIndex();
+		for (long id = 1; id <= orders; id++) {
+			index.put(new OrderSearchIndex.Document(id, List.of("Customer"), TODAY, LocalTime.NOON));
+		}
+		return index.search("customer", null);
+	}
+}
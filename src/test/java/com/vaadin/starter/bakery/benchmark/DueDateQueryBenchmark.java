@@ -0,0 +1,176 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.service.SalesCube;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Dimension;
+import com.vaadin.starter.bakery.backend.service.SalesCube.Measure;
+
+/**
+ * Measures the reads by due date that the application makes, on an in-memory
+ * H2 table with millions of orders: the first storefront page of
+ * {@code OrderRepository.findKeysByDueDateAfter}, the next ready order of
+ * {@code OrderRepository.findNextDue}, and the deliveries per day and month
+ * that the dashboard sums from the in-memory {@code SalesCube}. The queries
+ * are run with only a due date index and again with the (due date, due time,
+ * id) and (state, due date) indexes of {@code Order}. The same deliveries per
+ * day are also counted from the order table, as the dashboard did before it
+ * read the cube. Prints the query plan and the median execution time of each
+ * run.
+ * <p>
+ * Run the main method from the IDE, or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.vaadin.starter.bakery.benchmark.DueDateQueryBenchmark -Dorders=2000000}.
+ */
+public class DueDateQueryBenchmark {
+
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 11;
+
+	private interface Run {
+		void run() throws SQLException;
+	}
+
+	public static void main(String[] args) throws SQLException {
+		int orders = Integer.getInteger("orders", 2_000_000);
+		LocalDate today = LocalDate.now();
+		LocalDate monthStart = today.withDayOfMonth(1);
+		LocalDate yearStart = today.withDayOfYear(1);
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:benchmark;OPTIMIZE_REUSE_RESULTS=FALSE")) {
+			createOrders(connection, orders, today);
+			String firstPage = "SELECT id, due_date, due_time FROM order_info WHERE due_date>? "
+					+ "ORDER BY due_date, due_time, id LIMIT 50";
+			Object[] firstPageParameters = { Date.valueOf(today.minusDays(1)) };
+			String nextReady = "SELECT due_date, due_time FROM order_info "
+					+ "WHERE state=? AND (due_date>? OR (due_date=? AND due_time>?)) ORDER BY due_date, due_time LIMIT 1";
+			Object[] nextReadyParameters = { OrderState.READY.ordinal(), Date.valueOf(today), Date.valueOf(today),
+					Time.valueOf(LocalTime.of(10, 0)) };
+			String deliveriesPerDay = "SELECT EXTRACT(DAY FROM due_date), count(*) FROM order_info "
+					+ "WHERE state=? AND due_date>=? AND due_date<? GROUP BY EXTRACT(DAY FROM due_date)";
+			Object[] deliveriesPerDayParameters = { OrderState.DELIVERED.ordinal(), Date.valueOf(monthStart),
+					Date.valueOf(monthStart.plusMonths(1)) };
+
+			System.out.println(orders + " orders, due date index only");
+			report(connection, "storefront first page", firstPage, firstPageParameters);
+			report(connection, "next ready order", nextReady, nextReadyParameters);
+			report(connection, "deliveries per day", deliveriesPerDay, deliveriesPerDayParameters);
+
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("CREATE INDEX order_info_due ON order_info (due_date, due_time, id)");
+				statement.execute("CREATE INDEX order_info_state_due_date ON order_info (state, due_date)");
+				statement.execute("ANALYZE");
+			}
+			System.out.println(orders + " orders, with the indexes of Order");
+			report(connection, "storefront first page", firstPage, firstPageParameters);
+			report(connection, "next ready order", nextReady, nextReadyParameters);
+			report(connection, "deliveries per day", deliveriesPerDay, deliveriesPerDayParameters);
+
+			SalesCube salesCube = loadSalesCube(connection);
+			SalesCube.Slice thisMonth = SalesCube.Slice.between(monthStart, monthStart.plusMonths(1))
+					.inState(OrderState.DELIVERED);
+			SalesCube.Slice thisYear = SalesCube.Slice.between(yearStart, yearStart.plusYears(1))
+					.inState(OrderState.DELIVERED);
+			System.out.println(orders + " orders, from the sales cube");
+			report("deliveries per day", () -> salesCube.sum(Measure.ORDERS, Dimension.DAY_OF_MONTH, thisMonth,
+					(day, deliveries) -> {
+					}));
+			report("deliveries per month", () -> salesCube.sum(Measure.ORDERS, Dimension.MONTH, thisYear,
+					(month, deliveries) -> {
+					}));
+		}
+	}
+
+	// Spreads the orders evenly over the last ten years, in all six states
+	private static void createOrders(Connection connection, int orders, LocalDate today) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE order_info (id BIGINT PRIMARY KEY, due_date DATE NOT NULL, "
+					+ "due_time TIME NOT NULL, state TINYINT NOT NULL)");
+		}
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO order_info "
+				+ "SELECT X, DATEADD(DAY, -MOD(X * 7919, 3650), CAST(? AS DATE)), TIME '12:00:00', MOD(X, 6) "
+				+ "FROM SYSTEM_RANGE(1, ?)")) {
+			insert.setDate(1, Date.valueOf(today));
+			insert.setInt(2, orders);
+			insert.executeUpdate();
+		}
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE INDEX order_info_due_date ON order_info (due_date)");
+			statement.execute("ANALYZE");
+		}
+	}
+
+	// The order counts of the rollup rows, all at one pickup location
+	private static SalesCube loadSalesCube(Connection connection) throws SQLException {
+		SalesCube salesCube = new SalesCube();
+		OrderState[] states = OrderState.values();
+		try (Statement statement = connection.createStatement();
+				ResultSet rollups = statement
+						.executeQuery("SELECT due_date, state, count(*) FROM order_info GROUP BY due_date, state")) {
+			while (rollups.next()) {
+				salesCube.add(rollups.getDate(1).toLocalDate(), states[rollups.getInt(2)], 1, null,
+						rollups.getLong(3), 0, 0);
+			}
+		}
+		return salesCube;
+	}
+
+	private static void report(Connection connection, String name, String sql, Object[] parameters)
+			throws SQLException {
+		System.out.println("  " + name + ":");
+		try (PreparedStatement explain = prepare(connection, "EXPLAIN " + sql, parameters);
+				ResultSet plan = explain.executeQuery()) {
+			while (plan.next()) {
+				System.out.println("    " + plan.getString(1).replace("\n", "\n    "));
+			}
+		}
+
+		try (PreparedStatement query = prepare(connection, sql, parameters)) {
+			printMedian(() -> {
+				try (ResultSet result = query.executeQuery()) {
+					while (result.next()) {
+						// Consume the rows
+					}
+				}
+			});
+		}
+	}
+
+	private static void report(String name, Run run) throws SQLException {
+		System.out.println("  " + name + ":");
+		printMedian(run);
+	}
+
+	private static void printMedian(Run run) throws SQLException {
+		long[] times = new long[MEASURED_ROUNDS];
+		for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; i++) {
+			long start = System.nanoTime();
+			run.run();
+			if (i >= WARMUP_ROUNDS) {
+				times[i - WARMUP_ROUNDS] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(times);
+		System.out.printf("    median %.3f ms%n", times[MEASURED_ROUNDS / 2] / 1_000_000.0);
+	}
+
+	private static PreparedStatement prepare(Connection connection, String sql, Object[] parameters)
+			throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		for (int i = 0; i < parameters.length; i++) {
+			statement.setObject(i + 1, parameters[i]);
+		}
+		return statement;
+	}
+}
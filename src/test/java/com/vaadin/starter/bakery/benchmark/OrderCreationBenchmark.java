@@ -0,0 +1,248 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.vaadin.flow.spring.SpringBootAutoConfiguration;
+import com.vaadin.flow.spring.SpringSecurityAutoConfiguration;
+import com.vaadin.starter.bakery.app.ExecutorConfiguration;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+
+/**
+ * Measures placing orders through {@code OrderService.saveOrder}: the order
+ * with its customer, one to four items and two history items, the locked
+ * rollup rows, and the search index and sales cube updates after the commit.
+ * Every barista is a thread placing orders one after the other, due in the
+ * next week at one pickup location, so the baristas also wait for each
+ * other's rollup row locks. The services run in a Spring context without the
+ * UI, on an in-memory H2 database with a fixed delay for each round trip to
+ * the database. The orders are placed once with single-row inserts and once
+ * with the JDBC batching and insert ordering of
+ * {@code application.properties}. Prints the median and 99th percentile time
+ * of placing an order, and the orders placed per second.
+ * <p>
+ * Run the main method from the IDE, or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.vaadin.starter.bakery.benchmark.OrderCreationBenchmark -Dbaristas=8 -Dorders=500
+ * -DroundTripMicros=200}.
+ */
+public class OrderCreationBenchmark {
+
+	private static final int WARMUP_ORDERS = 100;
+
+	private static long roundTripNanos;
+
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		int baristas = Integer.getInteger("baristas", 8);
+		int orders = Integer.getInteger("orders", 500);
+		long roundTripMicros = Long.getLong("roundTripMicros", 200);
+		roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+		// Restarting the context in another thread would only add noise
+		System.setProperty("spring.devtools.restart.enabled", "false");
+
+		System.out.println(baristas + " baristas placing " + orders + " orders each, " + roundTripMicros
+				+ " microseconds per database round trip");
+		run("single-row inserts", baristas, orders, "--spring.jpa.properties.hibernate.jdbc.batch_size=1",
+				"--spring.jpa.properties.hibernate.order_inserts=false",
+				"--spring.jpa.properties.hibernate.order_updates=false");
+		run("batched and ordered inserts", baristas, orders);
+	}
+
+	private static void run(String name, int baristas, int orders, String... settings)
+			throws InterruptedException, ExecutionException {
+		List<String> arguments = new ArrayList<>(List.of(
+				"--spring.datasource.url=jdbc:h2:mem:" + name.replace(' ', '-') + ";DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.datasource.hikari.maximum-pool-size=" + (baristas + 2), "--spring.main.banner-mode=off",
+				"--logging.level.root=warn"));
+		arguments.addAll(List.of(settings));
+		SpringApplication application = new SpringApplication(Services.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+
+		ExecutorService executor = Executors.newFixedThreadPool(baristas);
+		try (ConfigurableApplicationContext context = application.run(arguments.toArray(new String[0]))) {
+			Bakery bakery = Bakery.create(context);
+			OrderService orderService = context.getBean(OrderService.class);
+
+			placeOrders(executor, orderService, bakery, baristas, WARMUP_ORDERS);
+			long start = System.nanoTime();
+			long[] times = placeOrders(executor, orderService, bakery, baristas, orders);
+			long elapsed = System.nanoTime() - start;
+
+			Arrays.sort(times);
+			System.out.printf("  %s: median %.3f ms, 99th percentile %.3f ms, %.0f orders/s%n", name,
+					times[times.length / 2] / 1_000_000.0, times[times.length * 99 / 100] / 1_000_000.0,
+					times.length / (elapsed / 1_000_000_000.0));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * The backend services and repositories of the application, without the
+	 * UI and security.
+	 */
+	@SpringBootConfiguration
+	@EnableAutoConfiguration(exclude = { SpringBootAutoConfiguration.class, SpringSecurityAutoConfiguration.class,
+			SecurityAutoConfiguration.class })
+	@EnableJpaRepositories(basePackageClasses = UserRepository.class)
+	@EntityScan(basePackageClasses = User.class)
+	@ComponentScan(basePackageClasses = OrderService.class)
+	@Import(ExecutorConfiguration.class)
+	static class Services {
+
+		@Bean
+		static BeanPostProcessor roundTrips() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource ? withRoundTrips((DataSource) bean) : bean;
+				}
+			};
+		}
+	}
+
+	// The in-memory database answers at once, so the time of sending each
+	// statement, batch and commit to a database server is added here
+	private static DataSource withRoundTrips(DataSource dataSource) {
+		return proxy(DataSource.class, dataSource);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			String name = method.getName();
+			if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")) {
+				LockSupport.parkNanos(roundTripNanos);
+			}
+			Object result;
+			try {
+				result = method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof Connection) {
+				return proxy(Connection.class, (Connection) result);
+			} else if (result instanceof PreparedStatement) {
+				return proxy(PreparedStatement.class, (PreparedStatement) result);
+			} else if (result instanceof Statement) {
+				return proxy(Statement.class, (Statement) result);
+			}
+			return result;
+		});
+	}
+
+	private static long[] placeOrders(ExecutorService executor, OrderService orderService, Bakery bakery,
+			int baristas, int orders) throws InterruptedException, ExecutionException {
+		List<Callable<long[]>> tasks = new ArrayList<>();
+		for (int i = 0; i < baristas; i++) {
+			tasks.add(() -> {
+				long[] times = new long[orders];
+				for (int j = 0; j < orders; j++) {
+					Order order = bakery.newOrder();
+					long start = System.nanoTime();
+					orderService.saveOrder(order);
+					times[j] = System.nanoTime() - start;
+				}
+				return times;
+			});
+		}
+		long[] times = new long[baristas * orders];
+		int i = 0;
+		for (Future<long[]> result : executor.invokeAll(tasks)) {
+			System.arraycopy(result.get(), 0, times, i++ * orders, orders);
+		}
+		return times;
+	}
+
+	private static class Bakery {
+		private final User barista;
+		private final PickupLocation pickupLocation;
+		private final List<Product> products;
+
+		Bakery(User barista, PickupLocation pickupLocation, List<Product> products) {
+			this.barista = barista;
+			this.pickupLocation = pickupLocation;
+			this.products = products;
+		}
+
+		static Bakery create(ConfigurableApplicationContext context) {
+			User barista = new User();
+			barista.setEmail("barista@vaadin.com");
+			barista.setPasswordHash("hash");
+			barista.setFirstName("Malin");
+			barista.setLastName("Castro");
+			barista.setRole("barista");
+			barista = context.getBean(UserRepository.class).save(barista);
+			PickupLocation pickupLocation = new PickupLocation();
+			pickupLocation.setName("Bakery");
+			pickupLocation = context.getBean(PickupLocationRepository.class).save(pickupLocation);
+			List<Product> products = new ArrayList<>();
+			for (String productName : List.of("Strawberry Bun", "Blueberry Cheese Cake", "Raspberry Tart",
+					"Vanilla Cracker", "Salami Pastry")) {
+				Product product = new Product();
+				product.setName(productName);
+				product.setPrice(100);
+				products.add(context.getBean(ProductRepository.class).save(product));
+			}
+			return new Bakery(barista, pickupLocation, products);
+		}
+
+		Order newOrder() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			Order order = new Order(barista);
+			order.setDueDate(LocalDate.now().plusDays(random.nextInt(7)));
+			order.setDueTime(LocalTime.of(8 + random.nextInt(10), 0));
+			order.setPickupLocation(pickupLocation);
+			order.getCustomer().setFullName("Jack Johnson");
+			order.getCustomer().setPhoneNumber("+358 12 345 678");
+			for (int i = random.nextInt(1, 5); i > 0; i--) {
+				OrderItem item = new OrderItem();
+				item.setProduct(products.get(random.nextInt(products.size())));
+				item.setQuantity(1 + random.nextInt(5));
+				order.getItems().add(item);
+			}
+			order.changeState(barista, OrderState.CONFIRMED);
+			return order;
+		}
+	}
+}
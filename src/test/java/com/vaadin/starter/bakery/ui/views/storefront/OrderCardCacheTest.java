@@ -0,0 +1,60 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderBrief;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+
+public class OrderCardCacheTest {
+
+	private static final LocalDate TODAY = LocalDate.of(2017, 3, 15);
+
+	private static OrderBrief order(int version, String customer) {
+		return new OrderBrief(1L, version, TODAY, LocalTime.NOON, OrderState.NEW, customer, "Bakery",
+				List.of(new OrderBrief.Item(2, "Strawberry Bun")));
+	}
+
+	@Test
+	public void cardsAreReusedUntilTheOrderOrTheDateChanges() {
+		OrderCardCache cache = new OrderCardCache(10);
+		OrderCard card = cache.get(order(0, "Jack"), TODAY);
+
+		Assertions.assertSame(card, cache.get(order(0, "Jack"), TODAY));
+		Assertions.assertNotSame(card, cache.get(order(1, "Jack"), TODAY));
+		Assertions.assertNotSame(card, cache.get(order(0, "Jack"), TODAY.plusDays(7)));
+		OrderCard renamed = cache.get(order(0, "Jill"), TODAY);
+		Assertions.assertEquals("Jill", renamed.getFullName());
+		Assertions.assertSame(renamed, cache.get(order(0, "Jill"), TODAY));
+	}
+
+	@Test
+	public void leastRecentlyUsedCardsAreEvicted() {
+		OrderCardCache cache = new OrderCardCache(2);
+		OrderCard first = cache.get(order(0, "Jack"), TODAY);
+		OrderCard second = cache.get(order(1, "Jack"), TODAY);
+		cache.get(order(0, "Jack"), TODAY);
+		cache.get(order(2, "Jack"), TODAY);
+
+		Assertions.assertSame(first, cache.get(order(0, "Jack"), TODAY));
+		Assertions.assertNotSame(second, cache.get(order(1, "Jack"), TODAY));
+	}
+
+	@Test
+	public void jsonHasTheRenderedFields() {
+		JsonObject json = new OrderCard(order(0, "Jack"), TODAY).toJson();
+
+		Assertions.assertEquals("Bakery", json.getString("place"));
+		Assertions.assertEquals("Jack", json.getString("fullName"));
+		Assertions.assertEquals("Strawberry Bun", json.getArray("items").getObject(0).getString("productName"));
+		Assertions.assertEquals(2, (int) json.getArray("items").getObject(0).getNumber("quantity"));
+		Assertions.assertEquals(JsonType.NULL, json.get("month").getType());
+	}
+}
@@ -0,0 +1,58 @@
+package com.vaadin.starter.bakery.ui.views.storefront;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OrderCardHeaderGeneratorTest {
+
+	private static final LocalDate TODAY = LocalDate.now();
+
+	private final Map<Long, LocalDate> dueDates = new TreeMap<>();
+
+	private Optional<Long> findFirst(LocalDate dueAfter, LocalDate dueBefore) {
+		return dueDates.entrySet().stream()
+				.filter(e -> (dueAfter == null || e.getValue().isAfter(dueAfter))
+						&& (dueBefore == null || e.getValue().isBefore(dueBefore)))
+				.min(Map.Entry.<Long, LocalDate>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+				.map(Map.Entry::getKey);
+	}
+
+	@Test
+	public void firstOrderOfEachGroupHasTheHeader() {
+		dueDates.put(1L, TODAY.minusDays(30));
+		dueDates.put(2L, TODAY.minusDays(1));
+		dueDates.put(3L, TODAY);
+		dueDates.put(4L, TODAY);
+		dueDates.put(5L, TODAY.plusDays(30));
+		OrderCardHeaderGenerator generator = new OrderCardHeaderGenerator();
+
+		generator.resetHeaderChain(true, this::findFirst);
+		Assertions.assertEquals("Recent", generator.get(1L).getMain());
+		Assertions.assertEquals("Yesterday", generator.get(2L).getMain());
+		Assertions.assertEquals("Today", generator.get(3L).getMain());
+		Assertions.assertNull(generator.get(4L));
+		Assertions.assertEquals("Upcoming", generator.get(5L).getMain());
+
+		generator.resetHeaderChain(false, this::findFirst);
+		Assertions.assertNull(generator.get(1L));
+		Assertions.assertEquals("Today", generator.get(3L).getMain());
+	}
+
+	@Test
+	public void refreshFindsNewFirstOrders() {
+		dueDates.put(3L, TODAY);
+		OrderCardHeaderGenerator generator = new OrderCardHeaderGenerator();
+		generator.resetHeaderChain(false, this::findFirst);
+
+		Assertions.assertFalse(generator.refresh());
+		dueDates.put(2L, TODAY);
+		Assertions.assertTrue(generator.refresh());
+		Assertions.assertEquals("Today", generator.get(2L).getMain());
+		Assertions.assertNull(generator.get(3L));
+	}
+}